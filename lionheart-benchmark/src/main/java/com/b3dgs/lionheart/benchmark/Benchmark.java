@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Locale;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Benchmark harness, running a task a number of times to warm up, then measuring each run time and the peak heap
+ * used during the measured runs.
+ */
+public final class Benchmark
+{
+    /** Nano seconds in a milli second. */
+    private static final double NANO_TO_MILLI = 1000000.0;
+    /** Bytes in a mega byte. */
+    private static final double BYTES_TO_MEGA = 1024.0 * 1024.0;
+    /** CSV header. */
+    private static final String CSV_HEADER = "name,average_ms,min_ms,max_ms,peak_heap_bytes";
+    /** Line separator. */
+    private static final String NEW_LINE = System.getProperty("line.separator");
+    /** CSV charset. */
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Write results to a CSV file, one line per result.
+     * 
+     * @param file The CSV file.
+     * @param results The results to write.
+     * @throws IOException If error on writing.
+     */
+    public static void writeCsv(File file, Collection<Result> results) throws IOException
+    {
+        Writer writer = null;
+        try
+        {
+            writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+            writer.write(CSV_HEADER);
+            writer.write(NEW_LINE);
+            for (final Result result : results)
+            {
+                writer.write(result.toCsv());
+                writer.write(NEW_LINE);
+            }
+        }
+        finally
+        {
+            UtilStream.safeClose(writer);
+        }
+    }
+
+    /**
+     * Report result.
+     * 
+     * @param result The result to report.
+     * @return The reported result.
+     */
+    public static Result report(Result result)
+    {
+        Verbose.info(result.toString());
+        return result;
+    }
+
+    /**
+     * Create a new temporary directory, outside of the resources folder.
+     * 
+     * @param prefix The directory name prefix.
+     * @return The created directory.
+     * @throws IOException If error on creating.
+     */
+    public static File createTempDirectory(String prefix) throws IOException
+    {
+        final File directory = File.createTempFile(prefix, "");
+        if (!directory.delete() || !directory.mkdir())
+        {
+            throw new IOException("Unable to create temporary directory: " + directory.getPath());
+        }
+        return directory;
+    }
+
+    /**
+     * Delete a temporary directory and its files. Failure is only reported.
+     * 
+     * @param directory The directory to delete.
+     */
+    public static void deleteTempDirectory(File directory)
+    {
+        final File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (final File file : files)
+            {
+                if (!file.delete())
+                {
+                    Verbose.warning(Benchmark.class, "deleteTempDirectory", "Unable to delete ", file.getPath());
+                }
+            }
+        }
+        if (!directory.delete())
+        {
+            Verbose.warning(Benchmark.class, "deleteTempDirectory", "Unable to delete ", directory.getPath());
+        }
+    }
+
+    /**
+     * Get the media of a file outside of the resources folder, for engine readers and writers only accepting media.
+     * 
+     * @param resources The resources folder, as given to the engine.
+     * @param file The file.
+     * @return The file media, relative to the resources folder.
+     */
+    public static Media getMedia(String resources, File file)
+    {
+        final StringBuilder path = new StringBuilder();
+        File parent = new File(resources).getAbsoluteFile();
+        while (parent.getParentFile() != null)
+        {
+            path.append("..").append(File.separatorChar);
+            parent = parent.getParentFile();
+        }
+        path.append(file.getAbsolutePath().substring(parent.getPath().length()));
+        return Medias.create(path.toString());
+    }
+
+    /**
+     * Reset heap pools peak usage.
+     */
+    private static void resetPeakHeap()
+    {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (MemoryType.HEAP == pool.getType())
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Get the heap pools peak usage since last reset.
+     * 
+     * @return The peak heap in bytes.
+     */
+    private static long getPeakHeap()
+    {
+        long peak = 0L;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (MemoryType.HEAP == pool.getType())
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /** Warm up runs. */
+    private final int warmup;
+    /** Measured runs. */
+    private final int iterations;
+
+    /**
+     * Create benchmark.
+     * 
+     * @param warmup The warm up runs (positive).
+     * @param iterations The measured runs (strictly positive).
+     * @throws LionEngineException If invalid arguments.
+     */
+    public Benchmark(int warmup, int iterations)
+    {
+        Check.superiorOrEqual(warmup, 0);
+        Check.superiorStrict(iterations, 0);
+
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Measure the task.
+     * 
+     * @param name The measure name.
+     * @param task The task to measure.
+     * @return The measure result.
+     * @throws IOException If error on running task.
+     */
+    public Result measure(String name, Task task) throws IOException
+    {
+        for (int i = 0; i < warmup; i++)
+        {
+            task.run();
+        }
+
+        System.gc();
+        resetPeakHeap();
+        long total = 0L;
+        long min = Long.MAX_VALUE;
+        long max = 0L;
+        for (int i = 0; i < iterations; i++)
+        {
+            final long start = System.nanoTime();
+            task.run();
+            final long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            min = Math.min(min, elapsed);
+            max = Math.max(max, elapsed);
+        }
+        return new Result(name, total / iterations, min, max, getPeakHeap());
+    }
+
+    /**
+     * Benchmark task.
+     */
+    public interface Task
+    {
+        /**
+         * Run the task once.
+         * 
+         * @throws IOException If error on running.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Benchmark result.
+     */
+    public static final class Result
+    {
+        /** Result name. */
+        private final String name;
+        /** Average time in nano seconds. */
+        private final long average;
+        /** Minimum time in nano seconds. */
+        private final long min;
+        /** Maximum time in nano seconds. */
+        private final long max;
+        /** Peak heap in bytes. */
+        private final long peakHeap;
+
+        /**
+         * Create result.
+         * 
+         * @param name The result name.
+         * @param average The average time in nano seconds.
+         * @param min The minimum time in nano seconds.
+         * @param max The maximum time in nano seconds.
+         * @param peakHeap The peak heap in bytes.
+         */
+        Result(String name, long average, long min, long max, long peakHeap)
+        {
+            this.name = name;
+            this.average = average;
+            this.min = min;
+            this.max = max;
+            this.peakHeap = peakHeap;
+        }
+
+        /**
+         * Get the result name.
+         * 
+         * @return The result name.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Get the average time.
+         * 
+         * @return The average time in milli seconds.
+         */
+        public double getAverage()
+        {
+            return average / NANO_TO_MILLI;
+        }
+
+        /**
+         * Get the minimum time.
+         * 
+         * @return The minimum time in milli seconds.
+         */
+        public double getMin()
+        {
+            return min / NANO_TO_MILLI;
+        }
+
+        /**
+         * Get the maximum time.
+         * 
+         * @return The maximum time in milli seconds.
+         */
+        public double getMax()
+        {
+            return max / NANO_TO_MILLI;
+        }
+
+        /**
+         * Get the peak heap.
+         * 
+         * @return The peak heap in bytes.
+         */
+        public long getPeakHeap()
+        {
+            return peakHeap;
+        }
+
+        /**
+         * Get the result as a CSV line: name, average, min, max (milli seconds), peak heap (bytes).
+         * 
+         * @return The CSV line.
+         */
+        public String toCsv()
+        {
+            return String.format(Locale.ENGLISH,
+                                 "%s,%.3f,%.3f,%.3f,%d",
+                                 name,
+                                 Double.valueOf(getAverage()),
+                                 Double.valueOf(getMin()),
+                                 Double.valueOf(getMax()),
+                                 Long.valueOf(peakHeap));
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ENGLISH,
+                                 "%s: %.2fms (min %.2fms, max %.2fms), peak heap %.1fMB",
+                                 name,
+                                 Double.valueOf(getAverage()),
+                                 Double.valueOf(getMin()),
+                                 Double.valueOf(getMax()),
+                                 Double.valueOf(peakHeap / BYTES_TO_MEGA));
+        }
+    }
+}
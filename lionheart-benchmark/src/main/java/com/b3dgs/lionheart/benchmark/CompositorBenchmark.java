@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Resolution;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Camera;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.NativeFramebuffer;
+import com.b3dgs.lionheart.benchmark.Benchmark.Result;
+import com.b3dgs.lionheart.benchmark.Benchmark.Task;
+import com.b3dgs.lionheart.landscape.BandCompositor;
+import com.b3dgs.lionheart.landscape.FactoryLandscape;
+import com.b3dgs.lionheart.landscape.Landscape;
+import com.b3dgs.lionheart.landscape.LandscapeType;
+
+/**
+ * Landscape compositor benchmark, comparing the swamp background rendered with graphic against the band compositor
+ * at 1, 2, 4 and 8 threads, at native and 3x resolutions.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}), second
+ * argument is an optional CSV output file.
+ * </p>
+ */
+public final class CompositorBenchmark
+{
+    /** Warm up frames. */
+    private static final int WARMUP = 200;
+    /** Measured frames. */
+    private static final int ITERATIONS = 1000;
+    /** Camera scroll speed, per frame. */
+    private static final double SCROLL = 2.0;
+    /** Measured threads. */
+    private static final int[] THREADS =
+    {
+        1, 2, 4, 8
+    };
+    /** Measured scales. */
+    private static final int[] SCALES =
+    {
+        1, 3
+    };
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder, optional CSV file).
+     * @throws IOException If error on writing CSV file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+
+        final Collection<Result> results = new ArrayList<Result>();
+        try
+        {
+            final Benchmark benchmark = new Benchmark(WARMUP, ITERATIONS);
+            for (final int scale : SCALES)
+            {
+                final Resolution resolution = Constant.NATIVE.getScaled(scale, scale);
+                results.add(Benchmark.report(measure(benchmark, resolution, 0)));
+                for (final int threads : THREADS)
+                {
+                    results.add(Benchmark.report(measure(benchmark, resolution, threads)));
+                }
+            }
+        }
+        finally
+        {
+            Engine.terminate();
+        }
+
+        if (args.length > 1)
+        {
+            Benchmark.writeCsv(new File(args[1]), results);
+        }
+    }
+
+    /**
+     * Measure the swamp background frame, updated and rendered to a native framebuffer.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param resolution The screen resolution.
+     * @param threads The compositing threads, <code>0</code> to render with graphic.
+     * @return The result.
+     * @throws IOException If error on running.
+     */
+    private static Result measure(Benchmark benchmark, Resolution resolution, int threads) throws IOException
+    {
+        final int width = resolution.getWidth();
+        final int height = resolution.getHeight();
+        final double scaleH = width / (double) Constant.NATIVE.getWidth();
+        final double scaleV = height / (double) Constant.NATIVE.getHeight();
+        final FactoryLandscape factory = new FactoryLandscape(resolution, scaleH, scaleV, false);
+        final Landscape landscape = factory.createLandscape(LandscapeType.SWAMP_DAY);
+        final NativeFramebuffer framebuffer = new NativeFramebuffer(width, height);
+        final Camera camera = new Camera();
+        camera.setView(0, 0, width, height, height);
+
+        final BandCompositor compositor;
+        final String name;
+        if (threads > 0)
+        {
+            compositor = new BandCompositor(threads);
+            name = "composite:" + threads + "t:" + width + "x" + height;
+        }
+        else
+        {
+            compositor = null;
+            name = "graphic:" + width + "x" + height;
+        }
+        landscape.setCompositor(compositor);
+        try
+        {
+            return benchmark.measure(name, new Task()
+            {
+                @Override
+                public void run()
+                {
+                    camera.moveLocation(1.0, SCROLL, 0.0);
+                    landscape.update(1.0, camera);
+                    landscape.renderBackground(framebuffer);
+                }
+            });
+        }
+        finally
+        {
+            if (compositor != null)
+            {
+                compositor.close();
+            }
+            framebuffer.dispose();
+            landscape.dispose();
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private CompositorBenchmark()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.Level;
+import com.b3dgs.lionheart.benchmark.Benchmark.Result;
+import com.b3dgs.lionheart.benchmark.Benchmark.Task;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.LevelImporter;
+import com.b3dgs.lionheart.level.RasterSheets;
+import com.b3dgs.lionheart.level.TileDictionary;
+
+/**
+ * Level pipeline benchmark, measuring for every rip of the levels folder the rip import, the level data save, the
+ * level data load and the raster sheets generation, with time and peak heap per level and stage.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link #DEFAULT_RESOURCES}, relative to the
+ * benchmark project), second argument is an optional CSV output file. Level data are saved to a temporary directory.
+ * </p>
+ */
+public final class LevelBenchmark
+{
+    /** Default resources folder. */
+    public static final String DEFAULT_RESOURCES = "../lionheart-game/" + LevelImporter.DEFAULT_RESOURCES;
+    /** Warm up runs per stage. */
+    private static final int WARMUP = 3;
+    /** Measured runs per stage. */
+    private static final int ITERATIONS = 10;
+    /** Raster definition file name. */
+    private static final String RASTER = "raster3.xml";
+    /** Temporary directory prefix. */
+    private static final String TEMP = "lionheart-benchmark";
+    /** Temporary level data file name. */
+    private static final String TEMP_FILE = "benchmark" + Level.EXTENSION;
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder, optional CSV file).
+     * @throws IOException If error on writing CSV file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+
+        final Collection<Result> results = new ArrayList<Result>();
+        final File temp = Benchmark.createTempDirectory(TEMP);
+        try
+        {
+            final Benchmark benchmark = new Benchmark(WARMUP, ITERATIONS);
+            for (final Map.Entry<Media, Media> entry : LevelImporter.getRips().entrySet())
+            {
+                final Media rip = entry.getKey();
+                if (rip.exists())
+                {
+                    try
+                    {
+                        results.addAll(measure(benchmark, rip, new File(temp, TEMP_FILE)));
+                    }
+                    catch (final IOException exception)
+                    {
+                        Verbose.exception(exception, "Unable to benchmark ", rip.getPath());
+                    }
+                    catch (final LionEngineException exception)
+                    {
+                        Verbose.exception(exception, "Unable to benchmark ", rip.getPath());
+                    }
+                }
+            }
+        }
+        finally
+        {
+            Benchmark.deleteTempDirectory(temp);
+            Engine.terminate();
+        }
+
+        if (args.length > 1)
+        {
+            Benchmark.writeCsv(new File(args[1]), results);
+        }
+    }
+
+    /**
+     * Measure all pipeline stages for a rip.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param rip The level rip.
+     * @param file The temporary level data file.
+     * @return The stages results.
+     * @throws IOException If error on a stage.
+     */
+    private static Collection<Result> measure(Benchmark benchmark, final Media rip, final File file)
+            throws IOException
+    {
+        final String name = rip.getPath();
+        final Media sheets = Medias.create(rip.getParentPath(), TileDictionary.SHEETS);
+        final Media raster = Medias.create(rip.getParentPath(), RASTER);
+        final TileDictionary dictionary = TileDictionary.get(sheets);
+        final MapTile map = new Services().create(MapTileGame.class);
+        final Collection<Result> results = new ArrayList<Result>();
+
+        results.add(Benchmark.report(benchmark.measure(name + ":import", new Task()
+        {
+            @Override
+            public void run()
+            {
+                dictionary.convert(map, rip, sheets);
+            }
+        })));
+        results.add(Benchmark.report(benchmark.measure(name + ":save", new Task()
+        {
+            @Override
+            public void run() throws IOException
+            {
+                final OutputStream output = new FileOutputStream(file);
+                try
+                {
+                    ChunkedLevel.save(map, sheets, output, ChunkedLevel.CHUNK_SIZE, LevelImporter.DEFAULT_ENCODING);
+                }
+                finally
+                {
+                    UtilStream.safeClose(output);
+                }
+            }
+        })));
+        results.add(Benchmark.report(benchmark.measure(name + ":load", new Task()
+        {
+            @Override
+            public void run() throws IOException
+            {
+                ChunkedLevel.open(file).load(new Services().create(MapTileGame.class));
+            }
+        })));
+        if (raster.exists())
+        {
+            results.add(Benchmark.report(benchmark.measure(name + ":raster", new Task()
+            {
+                @Override
+                public void run()
+                {
+                    RasterSheets.generate(map, raster);
+                }
+            })));
+        }
+        return results;
+    }
+
+    /**
+     * Private constructor.
+     */
+    private LevelBenchmark()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.Level;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.TileDictionary;
+import com.b3dgs.lionheart.level.TileEncoding;
+
+/**
+ * Compare file size and decode time of each {@link TileEncoding} for every {@link Level}, relative to
+ * {@link TileEncoding#RAW}.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}). Level
+ * files are written to a temporary directory.
+ * </p>
+ */
+public final class LevelEncodingReport
+{
+    /** Temporary directory prefix. */
+    private static final String TEMP = "lionheart-encoding";
+    /** Measured decodes per encoding. */
+    private static final int REPEAT = 50;
+    /** Nano seconds in a micro second. */
+    private static final double NANO_TO_MICRO = 1000.0;
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder).
+     * @throws IOException If error on import or decode.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+        final File temp = Benchmark.createTempDirectory(TEMP);
+        try
+        {
+            for (final Level level : Level.values())
+            {
+                if (level.getRip().exists())
+                {
+                    report(level, temp);
+                }
+            }
+        }
+        finally
+        {
+            Benchmark.deleteTempDirectory(temp);
+            Engine.terminate();
+        }
+    }
+
+    /**
+     * Report all encodings for the level.
+     * 
+     * @param level The level to report.
+     * @param temp The temporary directory.
+     * @throws IOException If error on import or decode.
+     */
+    private static void report(Level level, File temp) throws IOException
+    {
+        final Media rip = level.getRip();
+        final Media sheets = Medias.create(rip.getParentPath(), TileDictionary.SHEETS);
+        final MapTile map = new Services().create(MapTileGame.class);
+        TileDictionary.get(sheets).convert(map, rip, sheets);
+
+        final File rawFile = save(map, sheets, temp, level, TileEncoding.RAW);
+        final long rawSize = rawFile.length();
+        final double rawTime = decode(ChunkedLevel.open(rawFile));
+        for (final TileEncoding encoding : TileEncoding.values())
+        {
+            final File file = save(map, sheets, temp, level, encoding);
+            final long size = file.length();
+            final double time = decode(ChunkedLevel.open(file));
+            Verbose.info(String.format(Locale.ENGLISH,
+                                       "%s %s: %d bytes (%.1f%%), decode %.1fus (%.1f%%)",
+                                       level.name(),
+                                       encoding.name(),
+                                       Long.valueOf(size),
+                                       Double.valueOf(size * 100.0 / rawSize),
+                                       Double.valueOf(time),
+                                       Double.valueOf(time * 100.0 / rawTime)));
+        }
+    }
+
+    /**
+     * Save the map in chunked format with an encoding.
+     * 
+     * @param map The map to save.
+     * @param sheets The sheets configuration used by the map.
+     * @param temp The temporary directory.
+     * @param level The level saved.
+     * @param encoding The tile keys encoding.
+     * @return The saved file.
+     * @throws IOException If error on saving.
+     */
+    private static File save(MapTile map, Media sheets, File temp, Level level, TileEncoding encoding)
+            throws IOException
+    {
+        final String extension = encoding.name().toLowerCase(Locale.ENGLISH);
+        final File file = new File(temp, level.name() + "." + extension);
+        final OutputStream output = new FileOutputStream(file);
+        try
+        {
+            ChunkedLevel.save(map, sheets, output, ChunkedLevel.CHUNK_SIZE, encoding);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+        return file;
+    }
+
+    /**
+     * Measure the average time to decode all chunks of the level.
+     * 
+     * @param level The level to decode.
+     * @return The average decode time in micro seconds.
+     */
+    private static double decode(ChunkedLevel level)
+    {
+        final int[] keys = new int[level.getChunkSize() * level.getChunkSize()];
+        long total = 0L;
+        for (int i = -1; i < REPEAT; i++)
+        {
+            final long start = System.nanoTime();
+            for (int cy = 0; cy < level.getChunksVertical(); cy++)
+            {
+                for (int cx = 0; cx < level.getChunksHorizontal(); cx++)
+                {
+                    level.readChunk(cx, cy, keys);
+                }
+            }
+            // First pass is warm up
+            if (i >= 0)
+            {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / NANO_TO_MICRO / REPEAT;
+    }
+
+    /**
+     * Private constructor.
+     */
+    private LevelEncodingReport()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
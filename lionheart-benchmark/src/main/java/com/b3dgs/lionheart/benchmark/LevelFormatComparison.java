@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersister;
+import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersisterModel;
+import com.b3dgs.lionengine.io.FileReading;
+import com.b3dgs.lionengine.io.FileWriting;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.Level;
+import com.b3dgs.lionheart.landscape.WorldType;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.LevelImporter;
+import com.b3dgs.lionheart.level.TileDictionary;
+
+/**
+ * Compare legacy stream and chunked level formats on the swamp levels: file size, full load time, and time to open
+ * and decode a single chunk.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}). Level
+ * files are written to a temporary directory.
+ * </p>
+ */
+public final class LevelFormatComparison
+{
+    /** Temporary directory prefix. */
+    private static final String TEMP = "lionheart-format";
+    /** Legacy level file extension. */
+    private static final String LEGACY_EXTENSION = ".legacy";
+    /** Measured loads per format. */
+    private static final int REPEAT = 20;
+    /** Nano seconds in a micro second. */
+    private static final double NANO_TO_MICRO = 1000.0;
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder).
+     * @throws IOException If error on import or load.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+        final File temp = Benchmark.createTempDirectory(TEMP);
+        try
+        {
+            for (final Level level : Level.values())
+            {
+                if (WorldType.SWAMP == level.getWorld())
+                {
+                    compare(level, resources, temp);
+                }
+            }
+        }
+        finally
+        {
+            Benchmark.deleteTempDirectory(temp);
+            Engine.terminate();
+        }
+    }
+
+    /**
+     * Compare formats for the level.
+     * 
+     * @param level The level to compare.
+     * @param resources The resources folder.
+     * @param temp The temporary directory.
+     * @throws IOException If error on import or load.
+     */
+    private static void compare(Level level, String resources, File temp) throws IOException
+    {
+        final File chunked = new File(temp, level.name() + Level.EXTENSION);
+        final File legacyFile = new File(temp, level.name() + LEGACY_EXTENSION);
+        final Media legacy = Benchmark.getMedia(resources, legacyFile);
+        importLevel(level.getRip(), chunked);
+        saveLegacy(chunked, legacy);
+
+        // Warm up both paths once
+        loadLegacy(legacy);
+        ChunkedLevel.open(chunked).load(new Services().create(MapTileGame.class));
+
+        long legacyTime = 0L;
+        long chunkedTime = 0L;
+        long chunkTime = 0L;
+        for (int i = 0; i < REPEAT; i++)
+        {
+            long start = System.nanoTime();
+            loadLegacy(legacy);
+            legacyTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ChunkedLevel.open(chunked).load(new Services().create(MapTileGame.class));
+            chunkedTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final ChunkedLevel level = ChunkedLevel.open(chunked);
+            final MapTile map = new Services().create(MapTileGame.class);
+            level.create(map);
+            level.loadChunk(map, 0, 0, new int[level.getChunkSize() * level.getChunkSize()]);
+            chunkTime += System.nanoTime() - start;
+        }
+
+        Verbose.info(String.format(Locale.ENGLISH,
+                                   "%s: legacy %d bytes %.1fus, chunked %d bytes %.1fus, single chunk %.1fus",
+                                   level.name(),
+                                   Long.valueOf(legacyFile.length()),
+                                   Double.valueOf(legacyTime / NANO_TO_MICRO / REPEAT),
+                                   Long.valueOf(chunked.length()),
+                                   Double.valueOf(chunkedTime / NANO_TO_MICRO / REPEAT),
+                                   Double.valueOf(chunkTime / NANO_TO_MICRO / REPEAT)));
+    }
+
+    /**
+     * Import the level rip and save it in chunked format with {@link LevelImporter#DEFAULT_ENCODING}.
+     * 
+     * @param rip The level rip.
+     * @param file The chunked level file destination.
+     * @throws IOException If error on reading dictionary or saving.
+     */
+    private static void importLevel(Media rip, File file) throws IOException
+    {
+        final MapTile map = new Services().create(MapTileGame.class);
+        final Media sheets = Medias.create(rip.getParentPath(), TileDictionary.SHEETS);
+        TileDictionary.get(sheets).convert(map, rip, sheets);
+        final OutputStream output = new FileOutputStream(file);
+        try
+        {
+            ChunkedLevel.save(map, sheets, output, ChunkedLevel.CHUNK_SIZE, LevelImporter.DEFAULT_ENCODING);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+    }
+
+    /**
+     * Save the chunked level in legacy stream format.
+     * 
+     * @param chunked The chunked level file.
+     * @param legacy The legacy level file destination.
+     * @throws IOException If error on saving.
+     */
+    private static void saveLegacy(File chunked, Media legacy) throws IOException
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        final MapTilePersister persister = map.addFeatureAndGet(new MapTilePersisterModel(services));
+        ChunkedLevel.open(chunked).load(map);
+        FileWriting output = null;
+        try
+        {
+            output = new FileWriting(legacy);
+            persister.save(output);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+    }
+
+    /**
+     * Load a legacy stream level.
+     * 
+     * @param legacy The legacy level file.
+     * @throws IOException If error on loading.
+     */
+    private static void loadLegacy(Media legacy) throws IOException
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        final MapTilePersister persister = map.addFeatureAndGet(new MapTilePersisterModel(services));
+        FileReading input = null;
+        try
+        {
+            input = new FileReading(legacy);
+            persister.load(input);
+        }
+        finally
+        {
+            UtilStream.safeClose(input);
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private LevelFormatComparison()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
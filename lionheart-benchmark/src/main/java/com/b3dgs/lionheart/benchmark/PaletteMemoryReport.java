@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Raster;
+import com.b3dgs.lionengine.util.UtilFolder;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Level;
+import com.b3dgs.lionheart.Palette;
+import com.b3dgs.lionheart.landscape.Landscape;
+import com.b3dgs.lionheart.landscape.LandscapeType;
+import com.b3dgs.lionheart.landscape.WorldType;
+import com.b3dgs.lionheart.level.RasterSheets;
+import com.b3dgs.lionheart.level.TileDictionary;
+
+/**
+ * Compare memory of full colors images and {@link IndexedImage} with palettes on the swamp world: map raster sheets
+ * against raster line palettes, and background themes against one indexed theme plus a palette per other theme.
+ * Indexed raster sheets are checked against engine raster sheets.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}). Nothing
+ * is written.
+ * </p>
+ */
+public final class PaletteMemoryReport
+{
+    /** Map raster file. */
+    private static final String RASTER_FILE = "raster3.xml";
+    /** Background images, for each theme. */
+    private static final String[] BACKGROUNDS =
+    {
+        "backcolor.png", "backcolor_a.png", "backcolor_b.png", "cloud.png", "moon.png", "mountain.png", "parallax.png"
+    };
+    /** Full colors bytes per pixel. */
+    private static final int PIXEL_BYTES = 4;
+    /** Alpha shift. */
+    private static final int ALPHA_SHIFT = 24;
+    /** Bytes in a kilo byte. */
+    private static final double KILO = 1024.0;
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder).
+     * @throws IOException If error on import or load.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+        try
+        {
+            for (final Level level : Level.values())
+            {
+                if (WorldType.SWAMP == level.getWorld() && level.getRip().exists())
+                {
+                    reportRasters(level);
+                    break;
+                }
+            }
+            reportThemes(WorldType.SWAMP);
+        }
+        finally
+        {
+            Engine.terminate();
+        }
+    }
+
+    /**
+     * Report map raster sheets memory of the level, and check indexed rasters against engine rasters.
+     * 
+     * @param level The level to report.
+     * @throws IOException If error on import.
+     */
+    private static void reportRasters(Level level) throws IOException
+    {
+        final Media rip = level.getRip();
+        final Media sheets = Medias.create(rip.getParentPath(), TileDictionary.SHEETS);
+        final MapTile map = new Services().create(MapTileGame.class);
+        TileDictionary.get(sheets).convert(map, rip, sheets);
+        final Raster raster = Raster.load(Medias.create(rip.getParentPath(), RASTER_FILE));
+        final int tileHeight = map.getTileHeight();
+
+        for (int s = 0; s < map.getSheetsNumber(); s++)
+        {
+            final Integer sheet = Integer.valueOf(s);
+            final ImageBuffer surface = map.getSheet(sheet).getSurface();
+            final IndexedImage indexed = IndexedImage.create(surface);
+            long full = getBytes(surface);
+            long palettes = indexed.getBytes();
+            long mismatches = 0L;
+            for (int i = 0; i < RasterSheets.RASTERS; i++)
+            {
+                final Palette[] lines = Palette.createRaster(indexed.getPalette(),
+                                                             raster,
+                                                             i,
+                                                             RasterSheets.RASTERS,
+                                                             tileHeight);
+                final ImageBuffer expected = RasterSheets.generate(surface, raster, i, tileHeight);
+                final ImageBuffer actual = indexed.toImage(lines);
+                mismatches += compare(expected, actual);
+                full += getBytes(expected);
+                palettes += Palette.getBytes(lines);
+                expected.dispose();
+                actual.dispose();
+            }
+            Verbose.info(String.format(Locale.ENGLISH,
+                                       "%s sheet %d (%d colors), %d rasters: full %.1fKB, indexed %.1fKB (%.1f%%), "
+                                                       + "%d mismatching pixels",
+                                       level.name(),
+                                       sheet,
+                                       Integer.valueOf(indexed.getPalette().getSize()),
+                                       Integer.valueOf(RasterSheets.RASTERS),
+                                       Double.valueOf(full / KILO),
+                                       Double.valueOf(palettes / KILO),
+                                       Double.valueOf(palettes * 100.0 / full),
+                                       Long.valueOf(mismatches)));
+        }
+    }
+
+    /**
+     * Report background themes memory of the world, first theme being indexed and other themes being palettes when
+     * they match its indexes, full images else.
+     * 
+     * @param world The world to report.
+     */
+    private static void reportThemes(WorldType world)
+    {
+        final LandscapeType[] themes = LandscapeType.getWorldLandscape(world);
+        long totalFull = 0L;
+        long totalIndexed = 0L;
+        for (final String file : BACKGROUNDS)
+        {
+            final ImageBuffer base = Graphics.getImageBuffer(getBackground(world, themes[0], file));
+            final IndexedImage indexed = IndexedImage.create(base);
+            long full = getBytes(base);
+            long palettes = indexed.getBytes();
+            int unmatched = 0;
+            base.dispose();
+            for (int i = 1; i < themes.length; i++)
+            {
+                final ImageBuffer variant = Graphics.getImageBuffer(getBackground(world, themes[i], file));
+                final Palette palette = indexed.match(variant);
+                full += getBytes(variant);
+                if (palette == null)
+                {
+                    palettes += getBytes(variant);
+                    unmatched++;
+                }
+                else
+                {
+                    palettes += palette.getBytes();
+                }
+                variant.dispose();
+            }
+            Verbose.info(String.format(Locale.ENGLISH,
+                                       "%s %s, %d themes: full %.1fKB, indexed %.1fKB (%.1f%%), %d kept full",
+                                       world.name(),
+                                       file,
+                                       Integer.valueOf(themes.length),
+                                       Double.valueOf(full / KILO),
+                                       Double.valueOf(palettes / KILO),
+                                       Double.valueOf(palettes * 100.0 / full),
+                                       Integer.valueOf(unmatched)));
+            totalFull += full;
+            totalIndexed += palettes;
+        }
+        Verbose.info(String.format(Locale.ENGLISH,
+                                   "%s themes total: full %.1fKB, indexed %.1fKB (%.1f%%)",
+                                   world.name(),
+                                   Double.valueOf(totalFull / KILO),
+                                   Double.valueOf(totalIndexed / KILO),
+                                   Double.valueOf(totalIndexed * 100.0 / totalFull)));
+    }
+
+    /**
+     * Get the background image of a theme.
+     * 
+     * @param world The world type.
+     * @param theme The landscape theme.
+     * @param file The image file.
+     * @return The background image media.
+     */
+    private static Media getBackground(WorldType world, LandscapeType theme, String file)
+    {
+        return Medias.create(UtilFolder.getPath(Landscape.DIR_BACKGROUNDS, world.getFolder(), theme.getTheme()), file);
+    }
+
+    /**
+     * Count pixels which differ between two images of the same size.
+     * 
+     * @param expected The expected image.
+     * @param actual The actual image.
+     * @return The number of different pixels.
+     */
+    private static long compare(ImageBuffer expected, ImageBuffer actual)
+    {
+        final int width = expected.getWidth();
+        final int height = expected.getHeight();
+        final int[] a = new int[width * height];
+        final int[] b = new int[width * height];
+        expected.getRgb(0, 0, width, height, a, 0, width);
+        actual.getRgb(0, 0, width, height, b, 0, width);
+        long count = 0L;
+        for (int i = 0; i < a.length; i++)
+        {
+            // Fully transparent pixels are all the same
+            if (a[i] != b[i] && (a[i] >>> ALPHA_SHIFT != 0 || b[i] >>> ALPHA_SHIFT != 0))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the full colors memory of an image.
+     * 
+     * @param image The image.
+     * @return The memory in bytes.
+     */
+    private static long getBytes(ImageBuffer image)
+    {
+        return (long) image.getWidth() * image.getHeight() * PIXEL_BYTES;
+    }
+
+    /**
+     * Private constructor.
+     */
+    private PaletteMemoryReport()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
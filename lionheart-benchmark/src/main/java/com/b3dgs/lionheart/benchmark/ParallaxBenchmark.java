@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Resolution;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.benchmark.Benchmark.Result;
+import com.b3dgs.lionheart.benchmark.Benchmark.Task;
+import com.b3dgs.lionheart.landscape.Landscape;
+import com.b3dgs.lionheart.landscape.ParallaxLines;
+import com.b3dgs.lionheart.landscape.Scanlines;
+import com.b3dgs.lionheart.landscape.WorldType;
+
+/**
+ * Parallax benchmark, comparing the swamp parallax rendered with one blit per line against the single pass over the
+ * offsets table, at native and 3x resolutions.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}), second
+ * argument is an optional CSV output file.
+ * </p>
+ */
+public final class ParallaxBenchmark
+{
+    /** Warm up frames. */
+    private static final int WARMUP = 200;
+    /** Measured frames. */
+    private static final int ITERATIONS = 1000;
+    /** Camera scroll speed, per frame. */
+    private static final double SCROLL = 2.0;
+    /** Parallax lines, as swamp. */
+    private static final int LINES = 96;
+    /** Vertical location of the first line, as swamp. */
+    private static final int DEC_Y = 124;
+    /** First line scale percent, as swamp. */
+    private static final int START_PERCENT = 50;
+    /** Last line scale percent, as swamp. */
+    private static final int END_PERCENT = 100;
+    /** Horizontal start offset divisor, as swamp. */
+    private static final double DEC_X = 3.5;
+    /** Measured scales. */
+    private static final int[] SCALES =
+    {
+        1, 3
+    };
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder, optional CSV file).
+     * @throws IOException If error on writing CSV file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+
+        final Collection<Result> results = new ArrayList<Result>();
+        try
+        {
+            final Benchmark benchmark = new Benchmark(WARMUP, ITERATIONS);
+            for (final int scale : SCALES)
+            {
+                final Resolution resolution = Constant.NATIVE.getScaled(scale, scale);
+                results.add(Benchmark.report(measure(benchmark, resolution, false)));
+                results.add(Benchmark.report(measure(benchmark, resolution, true)));
+            }
+        }
+        finally
+        {
+            Engine.terminate();
+        }
+
+        if (args.length > 1)
+        {
+            Benchmark.writeCsv(new File(args[1]), results);
+        }
+    }
+
+    /**
+     * Measure the swamp parallax frame, updated and rendered to a screen buffer.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param resolution The screen resolution.
+     * @param singlePass <code>true</code> to render in a single pass, <code>false</code> to render each line.
+     * @return The result.
+     * @throws IOException If error on running.
+     */
+    private static Result measure(Benchmark benchmark, Resolution resolution, boolean singlePass) throws IOException
+    {
+        final int width = resolution.getWidth();
+        final int height = resolution.getHeight();
+        final ImageBuffer buffer = Graphics.createImageBuffer(width, height);
+        final Graphic g = buffer.createGraphic();
+        final ImageBuffer image = Graphics.getImageBuffer(Medias.create(Landscape.DIR_BACKGROUNDS,
+                                                                        WorldType.SWAMP.getFolder(),
+                                                                        "day",
+                                                                        "parallax.png"));
+        final Scanlines scanlines = new Scanlines(width, height);
+        final ParallaxLines parallax = new ParallaxLines(scanlines,
+                                                         image,
+                                                         LINES,
+                                                         (int) (width / DEC_X),
+                                                         DEC_Y,
+                                                         START_PERCENT,
+                                                         END_PERCENT,
+                                                         width);
+        parallax.setSinglePass(singlePass);
+        // Lines centered on screen
+        final int y = (height - LINES) / 2 - DEC_Y;
+        final String name;
+        if (singlePass)
+        {
+            name = "pass:" + width + "x" + height;
+        }
+        else
+        {
+            name = "lines:" + width + "x" + height;
+        }
+        try
+        {
+            return benchmark.measure(name, new Task()
+            {
+                @Override
+                public void run()
+                {
+                    parallax.update(1.0, 0, y, SCROLL);
+                    scanlines.update();
+                    parallax.render(g);
+                }
+            });
+        }
+        finally
+        {
+            parallax.dispose();
+            image.dispose();
+            g.dispose();
+            buffer.dispose();
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private ParallaxBenchmark()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
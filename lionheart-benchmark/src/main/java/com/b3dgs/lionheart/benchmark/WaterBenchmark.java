@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Resolution;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.util.UtilMath;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.benchmark.Benchmark.Result;
+import com.b3dgs.lionheart.benchmark.Benchmark.Task;
+import com.b3dgs.lionheart.landscape.Scanlines;
+import com.b3dgs.lionheart.landscape.WaterEffect;
+
+/**
+ * Water distortion benchmark, comparing the per line cosine and area copy path against the offsets table shifted by
+ * the scanlines pass with coalesced area copies, and by the scanlines pass on a pixel buffer, at native and 3x
+ * resolutions.
+ * <p>
+ * Runs headless. First argument is the resources folder (default to {@link LevelBenchmark#DEFAULT_RESOURCES}), second
+ * argument is an optional CSV output file.
+ * </p>
+ */
+public final class WaterBenchmark
+{
+    /** Warm up frames. */
+    private static final int WARMUP = 200;
+    /** Measured frames. */
+    private static final int ITERATIONS = 1000;
+    /** Water effect speed, per frame. */
+    private static final double SPEED = 0.06;
+    /** Water effect frequency. */
+    private static final double FREQUENCY = 1.5;
+    /** Water effect amplitude. */
+    private static final double AMPLITUDE = 0.8;
+    /** Water effect offset force. */
+    private static final double OFFSET = 3.0;
+    /** Water top, relative to screen height. */
+    private static final double WATER_TOP = 0.6;
+    /** Measured scales. */
+    private static final int[] SCALES =
+    {
+        1, 3
+    };
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder, optional CSV file).
+     * @throws IOException If error on writing CSV file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = LevelBenchmark.DEFAULT_RESOURCES;
+        }
+        System.setProperty("java.awt.headless", "true");
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+
+        final Collection<Result> results = new ArrayList<Result>();
+        try
+        {
+            final Benchmark benchmark = new Benchmark(WARMUP, ITERATIONS);
+            for (final int scale : SCALES)
+            {
+                final Resolution resolution = Constant.NATIVE.getScaled(scale, scale);
+                results.add(Benchmark.report(measureLines(benchmark, resolution)));
+                results.add(Benchmark.report(measureTable(benchmark, resolution)));
+                results.add(Benchmark.report(measurePixels(benchmark, resolution)));
+            }
+        }
+        finally
+        {
+            Engine.terminate();
+        }
+
+        if (args.length > 1)
+        {
+            Benchmark.writeCsv(new File(args[1]), results);
+        }
+    }
+
+    /**
+     * Measure the per line path: two cosines and one area copy for each line below the water top.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param resolution The screen resolution.
+     * @return The result.
+     * @throws IOException If error on running.
+     */
+    private static Result measureLines(Benchmark benchmark, Resolution resolution) throws IOException
+    {
+        final int width = resolution.getWidth();
+        final int height = resolution.getHeight();
+        final int top = (int) (height * WATER_TOP);
+        final ImageBuffer buffer = Graphics.createImageBuffer(width, height);
+        final Graphic g = buffer.createGraphic();
+        try
+        {
+            return benchmark.measure("lines:" + width + "x" + height, new Task()
+            {
+                private double wx;
+
+                @Override
+                public void run()
+                {
+                    wx += SPEED;
+                    for (int y = top; y < height; y++)
+                    {
+                        final double inside = Math.cos(UtilMath.wrapDouble(y + wx * FREQUENCY, 0.0, 360.0))
+                                              * AMPLITUDE;
+                        final double outside = Math.cos(wx) * OFFSET;
+                        g.copyArea(0, y, width, 1, (int) (inside + outside), 0);
+                    }
+                }
+            });
+        }
+        finally
+        {
+            g.dispose();
+            buffer.dispose();
+        }
+    }
+
+    /**
+     * Measure the offsets table path, with coalesced area copies.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param resolution The screen resolution.
+     * @return The result.
+     * @throws IOException If error on running.
+     */
+    private static Result measureTable(Benchmark benchmark, Resolution resolution) throws IOException
+    {
+        final int width = resolution.getWidth();
+        final int height = resolution.getHeight();
+        final int top = (int) (height * WATER_TOP);
+        final ImageBuffer buffer = Graphics.createImageBuffer(width, height);
+        final Graphic g = buffer.createGraphic();
+        final WaterEffect effect = new WaterEffect(FREQUENCY, AMPLITUDE, OFFSET);
+        final Scanlines scanlines = new Scanlines(width, height);
+        effect.setScreenHeight(height);
+        try
+        {
+            return benchmark.measure("table:" + width + "x" + height, new Task()
+            {
+                private double wx;
+
+                @Override
+                public void run()
+                {
+                    wx += SPEED;
+                    effect.update(wx);
+                    scanlines.clear();
+                    effect.contribute(scanlines, top);
+                    scanlines.shift(g);
+                }
+            });
+        }
+        finally
+        {
+            g.dispose();
+            buffer.dispose();
+        }
+    }
+
+    /**
+     * Measure the offsets table path, applied in one pass to a pixel buffer.
+     * 
+     * @param benchmark The benchmark harness.
+     * @param resolution The screen resolution.
+     * @return The result.
+     * @throws IOException If error on running.
+     */
+    private static Result measurePixels(Benchmark benchmark, Resolution resolution) throws IOException
+    {
+        final int width = resolution.getWidth();
+        final int height = resolution.getHeight();
+        final int top = (int) (height * WATER_TOP);
+        final int[] pixels = new int[width * height];
+        final WaterEffect effect = new WaterEffect(FREQUENCY, AMPLITUDE, OFFSET);
+        final Scanlines scanlines = new Scanlines(width, height);
+        effect.setScreenHeight(height);
+        return benchmark.measure("pixels:" + width + "x" + height, new Task()
+        {
+            private double wx;
+
+            @Override
+            public void run()
+            {
+                wx += SPEED;
+                effect.update(wx);
+                scanlines.clear();
+                effect.contribute(scanlines, top);
+                scanlines.shift(pixels);
+            }
+        });
+    }
+
+    /**
+     * Private constructor.
+     */
+    private WaterBenchmark()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
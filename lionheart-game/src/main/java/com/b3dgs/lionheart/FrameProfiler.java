@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.ColorRgba;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.Text;
+import com.b3dgs.lionengine.graphic.TextStyle;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Frame profiler, accumulating nano seconds per {@link FrameSection} in the current frame, and keeping a rolling
+ * window of frames to compute average and 99th percentile per section.
+ * <p>
+ * When disabled, timers only check the enabled flag, nothing is measured nor stored. When enabled, each ended frame
+ * can also be written as a CSV line, one column per section in milli seconds.
+ * </p>
+ */
+public final class FrameProfiler
+{
+    /** Rolling window size, in frames. */
+    public static final int WINDOW = 120;
+    /** Percentile reported. */
+    private static final double PERCENTILE = 0.99;
+    /** Nano seconds in a milli second. */
+    private static final double NANO_TO_MILLI = 1000000.0;
+    /** Overlay font size. */
+    private static final int FONT_SIZE = 9;
+    /** Overlay line height. */
+    private static final int LINE_HEIGHT = 10;
+    /** Line separator. */
+    private static final String NEW_LINE = System.getProperty("line.separator");
+    /** CSV charset. */
+    private static final String CHARSET = "UTF-8";
+    /** Sections. */
+    private static final FrameSection[] SECTIONS = FrameSection.values();
+
+    /** Samples by section, by frame. */
+    private final long[][] samples = new long[SECTIONS.length][WINDOW];
+    /** Current frame time by section. */
+    private final long[] current = new long[SECTIONS.length];
+    /** Sorted samples buffer. */
+    private final long[] sorted = new long[WINDOW];
+    /** Overlay extra line, <code>null</code> if none. */
+    private String info;
+    /** Overlay text, <code>null</code> if not created. */
+    private Text text;
+    /** CSV output, <code>null</code> if none. */
+    private Writer csv;
+    /** Next sample index. */
+    private int index;
+    /** Stored samples. */
+    private int count;
+    /** Enabled flag. */
+    private boolean enabled;
+
+    /**
+     * Enable or disable profiling. Samples are cleared when enabled.
+     * 
+     * @param enabled <code>true</code> to enable, <code>false</code> to disable.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if (enabled && !this.enabled)
+        {
+            Arrays.fill(current, 0L);
+            index = 0;
+            count = 0;
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check if enabled.
+     * 
+     * @return <code>true</code> if enabled, <code>false</code> else.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start a timer.
+     * 
+     * @return The start time, <code>0</code> if disabled.
+     */
+    public long start()
+    {
+        if (enabled)
+        {
+            return System.nanoTime();
+        }
+        return 0L;
+    }
+
+    /**
+     * Stop a timer, adding its elapsed time to the section in the current frame.
+     * 
+     * @param section The measured section.
+     * @param start The timer start time.
+     */
+    public void stop(FrameSection section, long start)
+    {
+        if (enabled)
+        {
+            current[section.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * End the current frame, storing its sections time and writing them to CSV if started.
+     * 
+     * @throws IOException If error on writing CSV.
+     */
+    public void endFrame() throws IOException
+    {
+        if (enabled)
+        {
+            for (int i = 0; i < SECTIONS.length; i++)
+            {
+                samples[i][index] = current[i];
+            }
+            index = (index + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+            if (csv != null)
+            {
+                writeLine();
+            }
+            Arrays.fill(current, 0L);
+        }
+    }
+
+    /**
+     * Start writing ended frames to a CSV file.
+     * 
+     * @param file The CSV file.
+     * @throws IOException If error on creating file.
+     */
+    public void startCsv(File file) throws IOException
+    {
+        stopCsv();
+        csv = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+        for (int i = 0; i < SECTIONS.length; i++)
+        {
+            if (i > 0)
+            {
+                csv.write(',');
+            }
+            csv.write(SECTIONS[i].getName());
+        }
+        csv.write(NEW_LINE);
+    }
+
+    /**
+     * Stop writing to CSV file and close it.
+     */
+    public void stopCsv()
+    {
+        UtilStream.safeClose(csv);
+        csv = null;
+    }
+
+    /**
+     * Get the section average time over the rolling window.
+     * 
+     * @param section The section.
+     * @return The average time in milli seconds.
+     */
+    public double getAverage(FrameSection section)
+    {
+        if (count == 0)
+        {
+            return 0.0;
+        }
+        final long[] values = samples[section.ordinal()];
+        long total = 0L;
+        for (int i = 0; i < count; i++)
+        {
+            total += values[i];
+        }
+        return total / (double) count / NANO_TO_MILLI;
+    }
+
+    /**
+     * Get the section 99th percentile time over the rolling window.
+     * 
+     * @param section The section.
+     * @return The percentile time in milli seconds.
+     */
+    public double getPercentile(FrameSection section)
+    {
+        if (count == 0)
+        {
+            return 0.0;
+        }
+        System.arraycopy(samples[section.ordinal()], 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        final int rank = (int) Math.ceil(PERCENTILE * count) - 1;
+        return sorted[Math.max(0, rank)] / NANO_TO_MILLI;
+    }
+
+    /**
+     * Set an extra overlay line, such as frame counters.
+     * 
+     * @param info The extra line, <code>null</code> if none.
+     */
+    public void setInfo(String info)
+    {
+        this.info = info;
+    }
+
+    /**
+     * Render the overlay, one line per section with average and 99th percentile.
+     * 
+     * @param g The graphic output.
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     */
+    public void render(Graphic g, int x, int y)
+    {
+        if (text == null)
+        {
+            text = Graphics.createText(Text.SANS_SERIF, FONT_SIZE, TextStyle.NORMAL);
+            text.setColor(ColorRgba.WHITE);
+        }
+        double total = 0.0;
+        for (int i = 0; i < SECTIONS.length; i++)
+        {
+            final FrameSection section = SECTIONS[i];
+            final double average = getAverage(section);
+            total += average;
+            text.draw(g,
+                      x,
+                      y + i * LINE_HEIGHT,
+                      String.format(Locale.ENGLISH,
+                                    "%s %.2fms p99 %.2fms",
+                                    section.getName(),
+                                    Double.valueOf(average),
+                                    Double.valueOf(getPercentile(section))));
+        }
+        text.draw(g,
+                  x,
+                  y + SECTIONS.length * LINE_HEIGHT,
+                  String.format(Locale.ENGLISH, "total %.2fms", Double.valueOf(total)));
+        if (info != null)
+        {
+            text.draw(g, x, y + (SECTIONS.length + 1) * LINE_HEIGHT, info);
+        }
+    }
+
+    /**
+     * Write the current frame as a CSV line.
+     * 
+     * @throws IOException If error on writing.
+     */
+    private void writeLine() throws IOException
+    {
+        for (int i = 0; i < SECTIONS.length; i++)
+        {
+            if (i > 0)
+            {
+                csv.write(',');
+            }
+            csv.write(String.format(Locale.ENGLISH, "%.4f", Double.valueOf(current[i] / NANO_TO_MILLI)));
+        }
+        csv.write(NEW_LINE);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+/**
+ * Frame sections measured by the {@link FrameProfiler}.
+ */
+public enum FrameSection
+{
+    /** Entities and map features update. */
+    ENTITIES_UPDATE("entities"),
+    /** Landscape components update. */
+    LANDSCAPE_UPDATE("landscape"),
+    /** Background render. */
+    BACKGROUND_RENDER("background"),
+    /** Water back render. */
+    WATER_BACK_RENDER("water back"),
+    /** Map and entities render. */
+    MAP_RENDER("map"),
+    /** Water front render. */
+    WATER_FRONT_RENDER("water front"),
+    /** Scanlines shift pass. */
+    SCANLINES_RENDER("scanlines");
+
+    /** Section name. */
+    private final String name;
+
+    /**
+     * Create section.
+     * 
+     * @param name The section name.
+     */
+    FrameSection(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the section name.
+     * 
+     * @return The section name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+}
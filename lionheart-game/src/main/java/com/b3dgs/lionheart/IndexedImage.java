@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+
+/**
+ * Image stored as one byte palette index per pixel, as the original art, so colors variants (rasters, themes) are
+ * palettes swaps instead of full images.
+ * <p>
+ * Fully transparent pixels share a single transparent color.
+ * </p>
+ */
+public final class IndexedImage
+{
+    /** Palette index mask. */
+    private static final int INDEX_MASK = 0xFF;
+    /** Alpha shift. */
+    private static final int ALPHA_SHIFT = 24;
+
+    /**
+     * Create an indexed image from an image.
+     * 
+     * @param image The image to index.
+     * @return The indexed image.
+     * @throws LionEngineException If image has more than {@link Palette#MAX_COLORS} colors.
+     */
+    public static IndexedImage create(ImageBuffer image)
+    {
+        return create(new ImageBuffer[]
+        {
+            image
+        }, new Palette[1]);
+    }
+
+    /**
+     * Create an indexed image from colors variants of the same art, such as themes, with one palette per variant. An
+     * index is a combination of variants colors, so a color of a variant can be split in several colors in another.
+     * 
+     * @param variants The variants to index, all of the same size.
+     * @param palettes The palette of each variant output.
+     * @return The indexed image, with the first variant palette.
+     * @throws LionEngineException If variants sizes differ or more than {@link Palette#MAX_COLORS} combinations.
+     */
+    public static IndexedImage create(ImageBuffer[] variants, Palette[] palettes)
+    {
+        final int width = variants[0].getWidth();
+        final int height = variants[0].getHeight();
+        final int[][] rgb = new int[variants.length][width * height];
+        for (int v = 0; v < variants.length; v++)
+        {
+            if (variants[v].getWidth() != width || variants[v].getHeight() != height)
+            {
+                throw new LionEngineException("Variant size differs: ", String.valueOf(variants[v]));
+            }
+            variants[v].getRgb(0, 0, width, height, rgb[v], 0, width);
+        }
+
+        // Int buffers equality is their content equality
+        final Map<IntBuffer, Integer> found = new HashMap<IntBuffer, Integer>();
+        final int[][] colors = new int[variants.length][Palette.MAX_COLORS];
+        final int[] combination = new int[variants.length];
+        final byte[] indexes = new byte[width * height];
+        for (int i = 0; i < indexes.length; i++)
+        {
+            for (int v = 0; v < variants.length; v++)
+            {
+                combination[v] = getColor(rgb[v][i]);
+            }
+            Integer index = found.get(IntBuffer.wrap(combination));
+            if (index == null)
+            {
+                if (found.size() == Palette.MAX_COLORS)
+                {
+                    throw new LionEngineException("Too many colors to index image: ", String.valueOf(variants[0]));
+                }
+                index = Integer.valueOf(found.size());
+                for (int v = 0; v < variants.length; v++)
+                {
+                    colors[v][found.size()] = combination[v];
+                }
+                found.put(IntBuffer.wrap(combination.clone()), index);
+            }
+            indexes[i] = (byte) index.intValue();
+        }
+        final int count = Math.max(1, found.size());
+        for (int v = 0; v < variants.length; v++)
+        {
+            palettes[v] = new Palette(Arrays.copyOf(colors[v], count));
+        }
+        return new IndexedImage(width, height, indexes, palettes[0]);
+    }
+
+    /**
+     * Get the indexed color of a pixel, all fully transparent pixels being the same color.
+     * 
+     * @param rgb The pixel color.
+     * @return The indexed color.
+     */
+    private static int getColor(int rgb)
+    {
+        if (rgb >>> ALPHA_SHIFT == 0)
+        {
+            return 0;
+        }
+        return rgb;
+    }
+
+    /** Palette indexes. */
+    private final byte[] indexes;
+    /** Image palette. */
+    private final Palette palette;
+    /** Image width. */
+    private final int width;
+    /** Image height. */
+    private final int height;
+
+    /**
+     * Create indexed image.
+     * 
+     * @param width The image width.
+     * @param height The image height.
+     * @param indexes The palette indexes.
+     * @param palette The image palette.
+     */
+    private IndexedImage(int width, int height, byte[] indexes, Palette palette)
+    {
+        this.width = width;
+        this.height = height;
+        this.indexes = indexes;
+        this.palette = palette;
+    }
+
+    /**
+     * Get the palette of a colors variant of this image, such as another theme of the same art. The variant must have
+     * the same size, and pixels sharing an index in this image must share a color in the variant.
+     * 
+     * @param variant The variant image.
+     * @return The variant palette, <code>null</code> if variant cannot be indexed as this image.
+     */
+    public Palette match(ImageBuffer variant)
+    {
+        if (variant.getWidth() != width || variant.getHeight() != height)
+        {
+            return null;
+        }
+        final int[] rgb = new int[width * height];
+        variant.getRgb(0, 0, width, height, rgb, 0, width);
+
+        final int[] colors = palette.colors.clone();
+        final boolean[] set = new boolean[colors.length];
+        for (int i = 0; i < rgb.length; i++)
+        {
+            final int index = indexes[i] & INDEX_MASK;
+            final int color = getColor(rgb[i]);
+            if (!set[index])
+            {
+                colors[index] = color;
+                set[index] = true;
+            }
+            else if (colors[index] != color)
+            {
+                return null;
+            }
+        }
+        return new Palette(colors);
+    }
+
+    /**
+     * Get the colors of an area with line palettes, line palette being the one of the image line modulo the number of
+     * palettes, as a raster gradient.
+     * 
+     * @param x The area horizontal location.
+     * @param y The area vertical location.
+     * @param areaWidth The area width.
+     * @param areaHeight The area height.
+     * @param lines The line palettes.
+     * @param rgb The area colors output.
+     * @param offset The first output color.
+     * @param scansize The output row size.
+     */
+    public void getRgb(int x,
+                       int y,
+                       int areaWidth,
+                       int areaHeight,
+                       Palette[] lines,
+                       int[] rgb,
+                       int offset,
+                       int scansize)
+    {
+        for (int j = 0; j < areaHeight; j++)
+        {
+            final int[] colors = lines[(y + j) % lines.length].colors;
+            final int in = (y + j) * width + x;
+            final int out = offset + j * scansize;
+            for (int i = 0; i < areaWidth; i++)
+            {
+                rgb[out + i] = colors[indexes[in + i] & INDEX_MASK];
+            }
+        }
+    }
+
+    /**
+     * Create the full colors image with a palette.
+     * 
+     * @param colors The palette to use.
+     * @return The created image.
+     */
+    public ImageBuffer toImage(Palette colors)
+    {
+        return toImage(new Palette[]
+        {
+            colors
+        });
+    }
+
+    /**
+     * Create the full colors image with line palettes.
+     * 
+     * @param lines The line palettes.
+     * @return The created image.
+     * @see #getRgb(int, int, int, int, Palette[], int[], int, int)
+     */
+    public ImageBuffer toImage(Palette[] lines)
+    {
+        final int[] rgb = new int[width * height];
+        getRgb(0, 0, width, height, lines, rgb, 0, width);
+        final ImageBuffer image = Graphics.createImageBuffer(width, height);
+        image.setRgb(0, 0, width, height, rgb, 0, width);
+        return image;
+    }
+
+    /**
+     * Get the image palette.
+     * 
+     * @return The image palette.
+     */
+    public Palette getPalette()
+    {
+        return palette;
+    }
+
+    /**
+     * Get the image width.
+     * 
+     * @return The image width.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Get the image height.
+     * 
+     * @return The image height.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Get the memory used by indexes and image palette.
+     * 
+     * @return The memory in bytes.
+     */
+    public long getBytes()
+    {
+        return indexes.length + palette.getBytes();
+    }
+}
@@ -38,6 +38,8 @@ public enum Level
     /** Levels file extension. */
     public static final String EXTENSION = ".lrl";
 
+    /** Level world. */
+    private final WorldType world;
     /** Level file. */
     private final Media level;
     /** Level rip image. */
@@ -51,10 +53,21 @@ public enum Level
      */
     Level(WorldType world, String level)
     {
+        this.world = world;
         this.level = Medias.create(DIR, world.getFolder(), level + EXTENSION);
         rip = Medias.create(DIR, world.getFolder(), level + ".png");
     }
 
+    /**
+     * Get the level world.
+     * 
+     * @return The level world.
+     */
+    public WorldType getWorld()
+    {
+        return world;
+    }
+
     /**
      * Get the level data file.
      * 
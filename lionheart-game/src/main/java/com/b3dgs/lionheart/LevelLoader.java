@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.landscape.FactoryLandscape;
+import com.b3dgs.lionheart.landscape.Landscape;
+import com.b3dgs.lionheart.landscape.LandscapeType;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.LevelImporter;
+import com.b3dgs.lionheart.level.RasterSheets;
+
+/**
+ * Run the level {@link LoadingStage} on a background thread, and provide the {@link PreparedLevel} once done.
+ * <p>
+ * Stages duration are appended to {@link #DURATIONS_FILE} after each loading, one line per level loaded.
+ * </p>
+ */
+public final class LevelLoader
+{
+    /** Development launch option to import the loaded level again if its rip changed since its last import. */
+    public static final String OPTION_IMPORT = "lionheart.import";
+    /** Launch option to render map with cached raster sheets instead of lazy raster tiles. */
+    public static final String OPTION_RASTER_SHEETS = "lionheart.rasterSheets";
+    /** Stages duration CSV file. */
+    public static final String DURATIONS_FILE = "loading.csv";
+    /** Loading thread name. */
+    private static final String THREAD_NAME = "Lionheart level loader";
+    /** Nano seconds in a milli second. */
+    private static final long NANO_TO_MILLI = 1000000L;
+    /** Line separator. */
+    private static final String NEW_LINE = System.getProperty("line.separator");
+    /** CSV charset. */
+    private static final String CHARSET = "UTF-8";
+
+    /** Level to load. */
+    private final Level level;
+    /** Landscape type to load. */
+    private final LandscapeType landscapeType;
+    /** Landscape factory. */
+    private final FactoryLandscape factory;
+    /** Streaming margin in chunk, negative if not streamed. */
+    private final int streamingMargin;
+    /** Import stale level flag, only for development as shipped levels are imported before packaging. */
+    private final boolean importStale = Boolean.getBoolean(OPTION_IMPORT);
+    /** Load cached raster sheets flag, else map is rendered with lazy raster tiles. */
+    private final boolean rasterSheets = Boolean.getBoolean(OPTION_RASTER_SHEETS);
+    /** Stages duration in nano seconds. */
+    private final long[] durations = new long[LoadingStage.values().length];
+    /** Loading executor. */
+    private final ExecutorService executor;
+    /** Stages completed. */
+    private volatile int completed;
+    /** Loading result. */
+    private Future<PreparedLevel> result;
+
+    /**
+     * Create loader.
+     * 
+     * @param level The level to load.
+     * @param landscapeType The landscape type to load.
+     * @param factory The landscape factory.
+     * @param streamingMargin The streaming margin in chunk, negative to load the whole map.
+     */
+    public LevelLoader(Level level, LandscapeType landscapeType, FactoryLandscape factory, int streamingMargin)
+    {
+        this.level = level;
+        this.landscapeType = landscapeType;
+        this.factory = factory;
+        this.streamingMargin = streamingMargin;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start loading in background.
+     */
+    public void start()
+    {
+        result = executor.submit(new Callable<PreparedLevel>()
+        {
+            @Override
+            public PreparedLevel call() throws IOException
+            {
+                return load();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Get the loading progress.
+     * 
+     * @return The loading progress, between 0.0 and 1.0.
+     */
+    public double getProgress()
+    {
+        return completed / (double) durations.length;
+    }
+
+    /**
+     * Check if loading is done, successfully or not.
+     * 
+     * @return <code>true</code> if done, <code>false</code> else.
+     */
+    public boolean isDone()
+    {
+        return result != null && result.isDone();
+    }
+
+    /**
+     * Get the prepared level, waiting for loading end if needed.
+     * 
+     * @return The prepared level.
+     * @throws LionEngineException If error on loading.
+     */
+    public PreparedLevel get()
+    {
+        try
+        {
+            return result.get();
+        }
+        catch (final ExecutionException exception)
+        {
+            throw new LionEngineException(exception.getCause(), "Error on loading level: ", level.name());
+        }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new LionEngineException(exception, "Level loading interrupted: ", level.name());
+        }
+    }
+
+    /**
+     * Run all stages.
+     * 
+     * @return The prepared level.
+     * @throws IOException If error on importing or reading level.
+     */
+    PreparedLevel load() throws IOException
+    {
+        long start = System.nanoTime();
+        if (importStale)
+        {
+            LevelImporter.importStale(Collections.singletonMap(level.getRip(), level.getFile()), 1);
+            if (!ChunkedLevel.isChunked(level.getFile()))
+            {
+                LevelImporter.importLevel(level.getRip(), level.getFile());
+            }
+        }
+        start = endStage(LoadingStage.IMPORT, start);
+
+        final ChunkedLevel data = ChunkedLevel.open(level.getFile());
+        final int[][] chunks;
+        if (streamingMargin < 0)
+        {
+            chunks = data.readAll();
+        }
+        else
+        {
+            chunks = null;
+        }
+        start = endStage(LoadingStage.DECODE, start);
+
+        final RasterSheets sheets;
+        if (rasterSheets)
+        {
+            final Media raster = Medias.create(data.getSheets().getParentPath(), RasterSheets.FILE);
+            sheets = RasterSheets.load(data.getSheets(), data.getTileWidth(), data.getTileHeight(), raster);
+        }
+        else
+        {
+            sheets = null;
+        }
+        start = endStage(LoadingStage.RASTER, start);
+
+        final Landscape landscape = factory.createLandscape(landscapeType);
+        endStage(LoadingStage.LANDSCAPE, start);
+        writeDurations(new File(DURATIONS_FILE));
+
+        return new PreparedLevel(level, data, chunks, streamingMargin, sheets, landscape, durations.clone());
+    }
+
+    /**
+     * Record stage end.
+     * 
+     * @param stage The ended stage.
+     * @param start The stage start time in nano seconds.
+     * @return The stage end time in nano seconds.
+     */
+    private long endStage(LoadingStage stage, long start)
+    {
+        final long end = System.nanoTime();
+        durations[stage.ordinal()] = end - start;
+        completed = stage.ordinal() + 1;
+        Verbose.info("Loading stage ", stage.name(), ": ", String.valueOf((end - start) / NANO_TO_MILLI), "ms");
+        return end;
+    }
+
+    /**
+     * Append the stages duration to a CSV file, one column per stage in milli seconds after the level name. Header is
+     * written when file is created. Failure is only reported, as loading is already done.
+     * 
+     * @param file The CSV file.
+     */
+    private void writeDurations(File file)
+    {
+        final boolean created = !file.isFile();
+        Writer csv = null;
+        try
+        {
+            csv = new OutputStreamWriter(new FileOutputStream(file, true), CHARSET);
+            if (created)
+            {
+                csv.write("level");
+                for (final LoadingStage stage : LoadingStage.values())
+                {
+                    csv.write(',');
+                    csv.write(stage.name());
+                }
+                csv.write(NEW_LINE);
+            }
+            csv.write(level.name());
+            for (final long duration : durations)
+            {
+                csv.write(',');
+                csv.write(String.format(Locale.ENGLISH, "%.4f", Double.valueOf(duration / (double) NANO_TO_MILLI)));
+            }
+            csv.write(NEW_LINE);
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception, "Unable to write loading durations: ", file.getPath());
+        }
+        finally
+        {
+            UtilStream.safeClose(csv);
+        }
+    }
+}
@@ -18,20 +18,33 @@
 package com.b3dgs.lionheart;
 
 import com.b3dgs.lionengine.Context;
+import com.b3dgs.lionengine.Resolution;
 import com.b3dgs.lionengine.core.Medias;
 import com.b3dgs.lionengine.core.drawable.Drawable;
 import com.b3dgs.lionengine.core.sequence.Sequence;
+import com.b3dgs.lionengine.graphic.ColorRgba;
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.Image;
+import com.b3dgs.lionheart.landscape.FactoryLandscape;
+import com.b3dgs.lionheart.landscape.LandscapeType;
+import com.b3dgs.lionheart.level.MapStreamer;
 
 /**
- * Loading screen.
+ * Loading screen, preparing the level in background while displaying progress.
  */
 public final class Loading extends Sequence
 {
-    private final Image loading = Drawable.loadImage(Medias.create(Constant.FOLDER_SPRITE, "loading.png"));
+    /** Progress bar horizontal margin. */
+    private static final int PROGRESS_MARGIN = 40;
+    /** Progress bar vertical location from bottom. */
+    private static final int PROGRESS_BOTTOM = 16;
+    /** Progress bar height. */
+    private static final int PROGRESS_HEIGHT = 3;
 
-    private boolean loaded;
+    /** Loading image. */
+    private final Image loading = Drawable.loadImage(Medias.create(Constant.FOLDER_SPRITE, "loading.png"));
+    /** Level loader. */
+    private final LevelLoader loader;
 
     /**
      * Constructor.
@@ -42,6 +55,12 @@ public final class Loading extends Sequence
     {
         super(context, Constant.NATIVE);
 
+        final Resolution source = context.getConfig().getSource();
+        final double scaleH = source.getWidth() / (double) Constant.NATIVE.getWidth();
+        final double scaleV = source.getHeight() / (double) Constant.NATIVE.getHeight();
+        final FactoryLandscape factory = new FactoryLandscape(Constant.NATIVE, scaleH, scaleV, false);
+        loader = new LevelLoader(Level.SWAMP_1_1, LandscapeType.SWAMP_DAY, factory, MapStreamer.DEFAULT_MARGIN);
+
         setSystemCursorVisible(false);
     }
 
@@ -50,22 +69,27 @@ public final class Loading extends Sequence
     {
         loading.load();
         loading.prepare();
+        loader.start();
     }
 
     @Override
     public void update(double extrp)
     {
-        if (loaded)
+        if (loader.isDone())
         {
-            end(Scene.class);
+            end(Scene.class, loader.get());
         }
-        loaded = true;
     }
 
     @Override
     public void render(Graphic g)
     {
         loading.render(g);
+
+        final int width = Constant.NATIVE.getWidth() - PROGRESS_MARGIN * 2;
+        final int y = Constant.NATIVE.getHeight() - PROGRESS_BOTTOM;
+        g.setColor(ColorRgba.WHITE);
+        g.drawRect(PROGRESS_MARGIN, y, (int) (width * loader.getProgress()), PROGRESS_HEIGHT, true);
     }
 
     @Override
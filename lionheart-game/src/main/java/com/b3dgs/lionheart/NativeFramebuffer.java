@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.ColorRgba;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+
+/**
+ * Native resolution framebuffer, where all layers are drawn before a single nearest neighbour integer upscale to the
+ * output.
+ * <p>
+ * Layers pixel work only depends on the framebuffer size, whatever the output size. Pixels can be accessed between
+ * {@link #lock()} and {@link #unlock()} for full frame passes, such as scanlines shifts. The upscaled frame is
+ * centered in the output when the output is not an exact multiple of the framebuffer.
+ * </p>
+ */
+public final class NativeFramebuffer
+{
+    /** Framebuffer image, <code>null</code> if no size set. */
+    private ImageBuffer buffer;
+    /** Framebuffer graphic, <code>null</code> if no size set. */
+    private Graphic graphic;
+    /** Framebuffer pixels. */
+    private int[] pixels;
+    /** Framebuffer width. */
+    private int width;
+    /** Framebuffer height. */
+    private int height;
+    /** Output width. */
+    private int outputWidth;
+    /** Output height. */
+    private int outputHeight;
+
+    /**
+     * Create framebuffer.
+     * 
+     * @param width The framebuffer width (must be strictly positive).
+     * @param height The framebuffer height (must be strictly positive).
+     */
+    public NativeFramebuffer(int width, int height)
+    {
+        setSize(width, height);
+        setOutput(width, height);
+    }
+
+    /**
+     * Set the framebuffer size, recreating it if changed.
+     * 
+     * @param width The framebuffer width (must be strictly positive).
+     * @param height The framebuffer height (must be strictly positive).
+     */
+    public void setSize(int width, int height)
+    {
+        Check.superiorStrict(width, 0);
+        Check.superiorStrict(height, 0);
+
+        if (width != this.width || height != this.height)
+        {
+            dispose();
+            this.width = width;
+            this.height = height;
+            buffer = Graphics.createImageBuffer(width, height);
+            graphic = buffer.createGraphic();
+            pixels = new int[width * height];
+        }
+    }
+
+    /**
+     * Set the output size, where framebuffer is upscaled.
+     * 
+     * @param width The output width.
+     * @param height The output height.
+     */
+    public void setOutput(int width, int height)
+    {
+        outputWidth = width;
+        outputHeight = height;
+    }
+
+    /**
+     * Get the graphic drawing to the framebuffer.
+     * 
+     * @return The framebuffer graphic.
+     */
+    public Graphic getGraphic()
+    {
+        return graphic;
+    }
+
+    /**
+     * Read the framebuffer pixels, for a full frame pass.
+     * 
+     * @return The framebuffer pixels, one row after the other.
+     */
+    public int[] lock()
+    {
+        buffer.getRgb(0, 0, width, height, pixels, 0, width);
+        return pixels;
+    }
+
+    /**
+     * Get the pixels array without reading the framebuffer, for a pass writing the full frame.
+     * 
+     * @return The pixels, written back on {@link #unlock()}.
+     */
+    public int[] getPixels()
+    {
+        return pixels;
+    }
+
+    /**
+     * Write back the pixels returned by {@link #lock()} or {@link #getPixels()}.
+     */
+    public void unlock()
+    {
+        buffer.setRgb(0, 0, width, height, pixels, 0, width);
+    }
+
+    /**
+     * Get the integer upscale factor, the largest one fitting the output.
+     * 
+     * @return The upscale factor, at least <code>1</code>.
+     */
+    public int getFactor()
+    {
+        return Math.max(1, Math.min(outputWidth / width, outputHeight / height));
+    }
+
+    /**
+     * Upscale the framebuffer to the output with the nearest neighbour, in one draw.
+     * 
+     * @param g The output graphic.
+     */
+    public void render(Graphic g)
+    {
+        final int factor = getFactor();
+        final int scaledWidth = width * factor;
+        final int scaledHeight = height * factor;
+        final int x = (outputWidth - scaledWidth) / 2;
+        final int y = (outputHeight - scaledHeight) / 2;
+        if (x > 0 || y > 0)
+        {
+            g.setColor(ColorRgba.BLACK);
+            g.drawRect(0, 0, outputWidth, outputHeight, true);
+        }
+        g.drawImage(buffer, x, y, x + scaledWidth, y + scaledHeight, 0, 0, width, height);
+    }
+
+    /**
+     * Get the framebuffer width.
+     * 
+     * @return The framebuffer width.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Get the framebuffer height.
+     * 
+     * @return The framebuffer height.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Release the framebuffer image.
+     */
+    public void dispose()
+    {
+        if (graphic != null)
+        {
+            graphic.dispose();
+            graphic = null;
+        }
+        if (buffer != null)
+        {
+            buffer.dispose();
+            buffer = null;
+        }
+        width = 0;
+        height = 0;
+    }
+}
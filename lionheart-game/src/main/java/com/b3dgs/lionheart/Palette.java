@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Raster;
+import com.b3dgs.lionengine.graphic.RasterData;
+import com.b3dgs.lionengine.util.UtilColor;
+
+/**
+ * Colors table of an {@link IndexedImage}, up to {@link #MAX_COLORS} colors.
+ * <p>
+ * A raster is a set of palettes, one per line of the raster gradient height, so a raster variant of an indexed image
+ * only costs its palettes. Consecutive identical line palettes are shared.
+ * </p>
+ */
+public final class Palette
+{
+    /** Maximum number of colors. */
+    public static final int MAX_COLORS = 256;
+    /** Bytes per color. */
+    private static final int COLOR_BYTES = 4;
+
+    /**
+     * Create the line palettes of a raster index, with raster colors computed as for map raster sheets.
+     * 
+     * @param palette The source palette.
+     * @param raster The raster definition.
+     * @param index The raster index.
+     * @param count The number of rasters.
+     * @param height The raster gradient height.
+     * @return The line palettes, one per gradient line.
+     */
+    public static Palette[] createRaster(Palette palette, Raster raster, int index, int count, int height)
+    {
+        final RasterData red = raster.getRed();
+        final RasterData green = raster.getGreen();
+        final RasterData blue = raster.getBlue();
+        return createRaster(palette,
+                            UtilColor.getRasterColor(index, red, count),
+                            UtilColor.getRasterColor(index, green, count),
+                            UtilColor.getRasterColor(index, blue, count),
+                            UtilColor.getRasterColor(index + 1, red, count),
+                            UtilColor.getRasterColor(index + 1, green, count),
+                            UtilColor.getRasterColor(index + 1, blue, count),
+                            height);
+    }
+
+    /**
+     * Create the line palettes of a raster gradient. The engine raster is applied to an image made of the palette
+     * colors repeated on each line, so the result is the same as rastering the full image.
+     * 
+     * @param palette The source palette.
+     * @param fr The first red.
+     * @param fg The first green.
+     * @param fb The first blue.
+     * @param er The end red.
+     * @param eg The end green.
+     * @param eb The end blue.
+     * @param height The raster gradient height.
+     * @return The line palettes, one per gradient line.
+     */
+    public static Palette[] createRaster(Palette palette, int fr, int fg, int fb, int er, int eg, int eb, int height)
+    {
+        final int size = palette.colors.length;
+        final int[] lines = new int[size * height];
+        for (int y = 0; y < height; y++)
+        {
+            System.arraycopy(palette.colors, 0, lines, y * size, size);
+        }
+        final ImageBuffer source = Graphics.createImageBuffer(size, height);
+        source.setRgb(0, 0, size, height, lines, 0, size);
+        final ImageBuffer rastered = Graphics.getRasterBuffer(source, fr, fg, fb, er, eg, eb, height);
+        rastered.getRgb(0, 0, size, height, lines, 0, size);
+        rastered.dispose();
+        source.dispose();
+
+        final Palette[] palettes = new Palette[height];
+        for (int y = 0; y < height; y++)
+        {
+            final int[] colors = Arrays.copyOfRange(lines, y * size, (y + 1) * size);
+            if (y > 0 && Arrays.equals(colors, palettes[y - 1].colors))
+            {
+                palettes[y] = palettes[y - 1];
+            }
+            else
+            {
+                palettes[y] = new Palette(colors);
+            }
+        }
+        return palettes;
+    }
+
+    /**
+     * Get the memory used by palettes, shared palettes counted once.
+     * 
+     * @param palettes The palettes.
+     * @return The memory in bytes.
+     */
+    public static long getBytes(Palette... palettes)
+    {
+        long bytes = 0L;
+        for (int i = 0; i < palettes.length; i++)
+        {
+            if (i == 0 || palettes[i] != palettes[i - 1])
+            {
+                bytes += palettes[i].getBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /** Colors. */
+    final int[] colors;
+
+    /**
+     * Create palette.
+     * 
+     * @param colors The colors, not copied (must not be empty and not exceed {@link #MAX_COLORS}).
+     */
+    public Palette(int[] colors)
+    {
+        Check.superiorStrict(colors.length, 0);
+        Check.inferiorOrEqual(colors.length, MAX_COLORS);
+
+        this.colors = colors;
+    }
+
+    /**
+     * Get a color.
+     * 
+     * @param index The color index.
+     * @return The color value.
+     */
+    public int get(int index)
+    {
+        return colors[index];
+    }
+
+    /**
+     * Get the number of colors.
+     * 
+     * @return The number of colors.
+     */
+    public int getSize()
+    {
+        return colors.length;
+    }
+
+    /**
+     * Get the memory used by colors.
+     * 
+     * @return The memory in bytes.
+     */
+    public long getBytes()
+    {
+        return (long) colors.length * COLOR_BYTES;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import com.b3dgs.lionengine.Check;
+
+/**
+ * Palettes interpolated between two palettes of the same size, computed once, so a crossfade step is a palette
+ * lookup.
+ */
+public final class PaletteRamp
+{
+    /** Channels shifts, from alpha to blue. */
+    private static final int[] SHIFTS =
+    {
+        24, 16, 8, 0
+    };
+    /** Channel mask. */
+    private static final int CHANNEL_MASK = 0xFF;
+
+    /**
+     * Interpolate two colors, channel per channel.
+     * 
+     * @param from The first color.
+     * @param to The last color.
+     * @param progress The progress from first to last color in <code>[0, 1]</code>.
+     * @return The interpolated color.
+     */
+    private static int interpolate(int from, int to, double progress)
+    {
+        int color = 0;
+        for (final int shift : SHIFTS)
+        {
+            final int a = from >>> shift & CHANNEL_MASK;
+            final int b = to >>> shift & CHANNEL_MASK;
+            color |= (int) Math.round(a + (b - a) * progress) << shift;
+        }
+        return color;
+    }
+
+    /** Ramp palettes, from first to last palette. */
+    private final Palette[] palettes;
+
+    /**
+     * Create ramp.
+     * 
+     * @param from The first palette.
+     * @param to The last palette (must have the same size as the first palette).
+     * @param steps The number of steps between palettes (must be strictly positive).
+     */
+    public PaletteRamp(Palette from, Palette to, int steps)
+    {
+        Check.superiorStrict(steps, 0);
+        Check.superiorOrEqual(from.getSize(), to.getSize());
+        Check.inferiorOrEqual(from.getSize(), to.getSize());
+
+        palettes = new Palette[steps + 1];
+        palettes[0] = from;
+        palettes[steps] = to;
+        for (int step = 1; step < steps; step++)
+        {
+            final double progress = step / (double) steps;
+            final int[] colors = new int[from.getSize()];
+            for (int i = 0; i < colors.length; i++)
+            {
+                colors[i] = interpolate(from.colors[i], to.colors[i], progress);
+            }
+            palettes[step] = new Palette(colors);
+        }
+    }
+
+    /**
+     * Get the palette of the nearest step. Same step always returns the same palette instance.
+     * 
+     * @param progress The progress from first to last palette in <code>[0, 1]</code>.
+     * @return The step palette.
+     */
+    public Palette get(double progress)
+    {
+        final int steps = palettes.length - 1;
+        final int step = (int) Math.round(progress * steps);
+        return palettes[Math.max(0, Math.min(steps, step))];
+    }
+
+    /**
+     * Get the memory used by interpolated palettes.
+     * 
+     * @return The memory in bytes.
+     */
+    public long getBytes()
+    {
+        long bytes = 0L;
+        for (int step = 1; step < palettes.length - 1; step++)
+        {
+            bytes += palettes[step].getBytes();
+        }
+        return bytes;
+    }
+}
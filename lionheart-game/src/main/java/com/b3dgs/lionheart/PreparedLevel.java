@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import com.b3dgs.lionheart.landscape.Landscape;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.RasterSheets;
+
+/**
+ * Level prepared by the {@link LevelLoader}, ready to be set to the world.
+ */
+public final class PreparedLevel
+{
+    /** Level reference. */
+    private final Level level;
+    /** Level data. */
+    private final ChunkedLevel data;
+    /** Decoded chunks, <code>null</code> if streamed. */
+    private final int[][] chunks;
+    /** Streaming margin in chunk, negative if not streamed. */
+    private final int streamingMargin;
+    /** Raster sheets loaded, <code>null</code> if rendered with lazy raster tiles. */
+    private final RasterSheets rasterSheets;
+    /** Landscape loaded. */
+    private final Landscape landscape;
+    /** Stages duration in nano seconds, indexed by stage ordinal. */
+    private final long[] durations;
+
+    /**
+     * Create prepared level.
+     * 
+     * @param level The level reference.
+     * @param data The level data.
+     * @param chunks The decoded chunks, <code>null</code> if streamed.
+     * @param streamingMargin The streaming margin in chunk, negative if not streamed.
+     * @param rasterSheets The raster sheets loaded, <code>null</code> if rendered with lazy raster tiles.
+     * @param landscape The landscape loaded.
+     * @param durations The stages duration in nano seconds, indexed by stage ordinal.
+     */
+    PreparedLevel(Level level,
+                  ChunkedLevel data,
+                  int[][] chunks,
+                  int streamingMargin,
+                  RasterSheets rasterSheets,
+                  Landscape landscape,
+                  long[] durations)
+    {
+        this.level = level;
+        this.data = data;
+        this.chunks = chunks;
+        this.streamingMargin = streamingMargin;
+        this.rasterSheets = rasterSheets;
+        this.landscape = landscape;
+        this.durations = durations;
+    }
+
+    /**
+     * Get the level reference.
+     * 
+     * @return The level reference.
+     */
+    public Level getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Get the level data.
+     * 
+     * @return The level data.
+     */
+    public ChunkedLevel getData()
+    {
+        return data;
+    }
+
+    /**
+     * Get the decoded chunks.
+     * 
+     * @return The decoded chunks, <code>null</code> if streamed.
+     */
+    public int[][] getChunks()
+    {
+        return chunks;
+    }
+
+    /**
+     * Get the streaming margin.
+     * 
+     * @return The streaming margin in chunk, negative if not streamed.
+     */
+    public int getStreamingMargin()
+    {
+        return streamingMargin;
+    }
+
+    /**
+     * Get the raster sheets.
+     * 
+     * @return The raster sheets loaded, <code>null</code> if rendered with lazy raster tiles.
+     */
+    public RasterSheets getRasterSheets()
+    {
+        return rasterSheets;
+    }
+
+    /**
+     * Get the landscape.
+     * 
+     * @return The landscape loaded.
+     */
+    public Landscape getLandscape()
+    {
+        return landscape;
+    }
+
+    /**
+     * Get the stage duration.
+     * 
+     * @param stage The stage reference.
+     * @return The stage duration in nano seconds.
+     */
+    public long getDuration(LoadingStage stage)
+    {
+        return durations[stage.ordinal()];
+    }
+}
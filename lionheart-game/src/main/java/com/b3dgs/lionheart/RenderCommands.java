@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.Mirror;
+import com.b3dgs.lionengine.game.feature.Displayable;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.SpriteAnimated;
+import com.b3dgs.lionheart.landscape.DrawCalls;
+
+/**
+ * Render command buffer. Components append draw records (image, location and clip in image) to preallocated arrays
+ * instead of drawing, then {@link #flush(Graphic)} draws them in one pass.
+ * <p>
+ * On flush, commands outside the view are culled, commands are ordered by {@link RenderLayer}, then by image inside
+ * sorted layers, and consecutive draws of the same image are merged in a single draw when their screen and image areas
+ * are both contiguous, horizontally or vertically. Mirrored draws are never merged. Images identifiers only live until
+ * flush.
+ * </p>
+ * <p>
+ * Drawings not going through commands, such as debug shapes, can be added as overlays, rendered after the commands on
+ * flush, in submit order.
+ * </p>
+ */
+public final class RenderCommands
+{
+    /** Default capacity in commands. */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** Layer shift in sort key. */
+    private static final int LAYER_SHIFT = 56;
+    /** Image shift in sort key. */
+    private static final int IMAGE_SHIFT = 32;
+    /** Sequence mask in sort key. */
+    private static final long SEQUENCE_MASK = 0xFFFFFFFFL;
+
+    /** Images by identifier. */
+    private final List<ImageBuffer> images = new ArrayList<ImageBuffer>();
+    /** Identifiers by image. */
+    private final Map<ImageBuffer, Integer> ids = new IdentityHashMap<ImageBuffer, Integer>();
+    /** Overlays rendered after commands. */
+    private final List<Displayable> overlays = new ArrayList<Displayable>();
+    /** Command image identifiers. */
+    private int[] image;
+    /** Command horizontal locations. */
+    private int[] x;
+    /** Command vertical locations. */
+    private int[] y;
+    /** Command horizontal clip locations in image. */
+    private int[] clipX;
+    /** Command vertical clip locations in image. */
+    private int[] clipY;
+    /** Command clip widths. */
+    private int[] clipWidth;
+    /** Command clip heights. */
+    private int[] clipHeight;
+    /** Command mirrors. */
+    private Mirror[] mirror;
+    /** Command sort keys. */
+    private long[] keys;
+    /** Commands number. */
+    private int count;
+    /** View width. */
+    private int viewWidth;
+    /** View height. */
+    private int viewHeight;
+    /** Submitted commands in current frame. */
+    private int submitted;
+    /** Culled commands in current frame. */
+    private int culled;
+    /** Merged commands in current frame. */
+    private int merged;
+    /** Draws done in current frame. */
+    private int drawn;
+    /** Submitted commands in last frame. */
+    private int lastSubmitted;
+    /** Culled commands in last frame. */
+    private int lastCulled;
+    /** Merged commands in last frame. */
+    private int lastMerged;
+    /** Draws done in last frame. */
+    private int lastDrawn;
+
+    /**
+     * Create command buffer.
+     * 
+     * @param capacity The initial capacity in commands, grown when exceeded (must be strictly positive).
+     */
+    public RenderCommands(int capacity)
+    {
+        Check.superiorStrict(capacity, 0);
+
+        allocate(capacity);
+    }
+
+    /**
+     * Set the view size used for culling.
+     * 
+     * @param width The view width.
+     * @param height The view height.
+     */
+    public void setView(int width, int height)
+    {
+        viewWidth = width;
+        viewHeight = height;
+    }
+
+    /**
+     * Append a draw command.
+     * 
+     * @param layer The command layer.
+     * @param source The image to draw.
+     * @param dx The horizontal location on screen.
+     * @param dy The vertical location on screen.
+     * @param sx The horizontal clip location in image.
+     * @param sy The vertical clip location in image.
+     * @param width The clip width.
+     * @param height The clip height.
+     */
+    public void add(RenderLayer layer, ImageBuffer source, int dx, int dy, int sx, int sy, int width, int height)
+    {
+        add(layer, source, dx, dy, sx, sy, width, height, Mirror.NONE);
+    }
+
+    /**
+     * Append a draw command of the current sprite frame, at the sprite render location and with its mirror.
+     * 
+     * @param layer The command layer.
+     * @param sprite The sprite to draw.
+     */
+    public void add(RenderLayer layer, SpriteAnimated sprite)
+    {
+        final int width = sprite.getTileWidth();
+        final int height = sprite.getTileHeight();
+        final int columns = sprite.getFramesHorizontal();
+        final int frame = sprite.getFrame() - 1;
+        add(layer,
+            sprite.getSurface(),
+            sprite.getRenderX(),
+            sprite.getRenderY(),
+            frame % columns * width,
+            frame / columns * height,
+            width,
+            height,
+            sprite.getMirror());
+    }
+
+    /**
+     * Append a draw command.
+     * 
+     * @param layer The command layer.
+     * @param source The image to draw.
+     * @param dx The horizontal location on screen.
+     * @param dy The vertical location on screen.
+     * @param sx The horizontal clip location in image.
+     * @param sy The vertical clip location in image.
+     * @param width The clip width.
+     * @param height The clip height.
+     * @param flip The mirror applied on screen.
+     */
+    public void add(RenderLayer layer,
+                    ImageBuffer source,
+                    int dx,
+                    int dy,
+                    int sx,
+                    int sy,
+                    int width,
+                    int height,
+                    Mirror flip)
+    {
+        submitted++;
+        if (dx + width <= 0 || dy + height <= 0 || dx >= viewWidth || dy >= viewHeight)
+        {
+            culled++;
+            return;
+        }
+        if (count == image.length)
+        {
+            allocate(count * 2);
+        }
+        Integer id = ids.get(source);
+        if (id == null)
+        {
+            id = Integer.valueOf(images.size());
+            ids.put(source, id);
+            images.add(source);
+        }
+        final long sortedImage;
+        if (layer.isSorted())
+        {
+            sortedImage = id.longValue();
+        }
+        else
+        {
+            sortedImage = 0L;
+        }
+        image[count] = id.intValue();
+        x[count] = dx;
+        y[count] = dy;
+        clipX[count] = sx;
+        clipY[count] = sy;
+        clipWidth[count] = width;
+        clipHeight[count] = height;
+        mirror[count] = flip;
+        keys[count] = (long) layer.ordinal() << LAYER_SHIFT | sortedImage << IMAGE_SHIFT | count;
+        count++;
+    }
+
+    /**
+     * Append an overlay, rendered after the commands on next flush.
+     * 
+     * @param overlay The overlay to render.
+     */
+    public void addOverlay(Displayable overlay)
+    {
+        overlays.add(overlay);
+    }
+
+    /**
+     * Draw all commands, merging contiguous draws of the same image, then render overlays, and clear buffer.
+     * 
+     * @param g The graphic output.
+     */
+    public void flush(Graphic g)
+    {
+        Arrays.sort(keys, 0, count);
+
+        int run = -1;
+        int runX = 0;
+        int runY = 0;
+        int runClipX = 0;
+        int runClipY = 0;
+        int runWidth = 0;
+        int runHeight = 0;
+        Mirror runMirror = Mirror.NONE;
+        int draws = 0;
+        for (int i = 0; i < count; i++)
+        {
+            final int c = (int) (keys[i] & SEQUENCE_MASK);
+            final boolean mergeable = run == image[c] && runMirror == Mirror.NONE && mirror[c] == Mirror.NONE;
+            if (mergeable
+                && y[c] == runY
+                && clipY[c] == runClipY
+                && clipHeight[c] == runHeight
+                && x[c] == runX + runWidth
+                && clipX[c] == runClipX + runWidth)
+            {
+                runWidth += clipWidth[c];
+                merged++;
+            }
+            else if (mergeable
+                     && x[c] == runX
+                     && clipX[c] == runClipX
+                     && clipWidth[c] == runWidth
+                     && y[c] == runY + runHeight
+                     && clipY[c] == runClipY + runHeight)
+            {
+                runHeight += clipHeight[c];
+                merged++;
+            }
+            else
+            {
+                if (run > -1)
+                {
+                    draw(g, run, runX, runY, runClipX, runClipY, runWidth, runHeight, runMirror);
+                    draws++;
+                }
+                run = image[c];
+                runMirror = mirror[c];
+                runX = x[c];
+                runY = y[c];
+                runClipX = clipX[c];
+                runClipY = clipY[c];
+                runWidth = clipWidth[c];
+                runHeight = clipHeight[c];
+            }
+        }
+        if (run > -1)
+        {
+            draw(g, run, runX, runY, runClipX, runClipY, runWidth, runHeight, runMirror);
+            draws++;
+        }
+        drawn += draws;
+        DrawCalls.count(draws);
+
+        for (final Displayable overlay : overlays)
+        {
+            overlay.render(g);
+        }
+
+        count = 0;
+        images.clear();
+        ids.clear();
+        overlays.clear();
+    }
+
+    /**
+     * End the frame, keeping its counters as last frame ones.
+     */
+    public void endFrame()
+    {
+        lastSubmitted = submitted;
+        lastCulled = culled;
+        lastMerged = merged;
+        lastDrawn = drawn;
+        submitted = 0;
+        culled = 0;
+        merged = 0;
+        drawn = 0;
+    }
+
+    /**
+     * Get the commands submitted in last frame.
+     * 
+     * @return The submitted commands.
+     */
+    public int getSubmitted()
+    {
+        return lastSubmitted;
+    }
+
+    /**
+     * Get the commands culled in last frame.
+     * 
+     * @return The culled commands.
+     */
+    public int getCulled()
+    {
+        return lastCulled;
+    }
+
+    /**
+     * Get the commands merged into a previous draw in last frame.
+     * 
+     * @return The merged commands.
+     */
+    public int getMerged()
+    {
+        return lastMerged;
+    }
+
+    /**
+     * Get the draws done in last frame.
+     * 
+     * @return The draws done.
+     */
+    public int getDrawn()
+    {
+        return lastDrawn;
+    }
+
+    /**
+     * Get the last frame counters as text.
+     * 
+     * @return The last frame counters.
+     */
+    public String getReport()
+    {
+        return new StringBuilder().append("commands ")
+                                  .append(lastSubmitted)
+                                  .append(" culled ")
+                                  .append(lastCulled)
+                                  .append(" merged ")
+                                  .append(lastMerged)
+                                  .append(" draws ")
+                                  .append(lastDrawn)
+                                  .toString();
+    }
+
+    /**
+     * Draw a clipped image area, mirrored by swapping its screen bounds.
+     * 
+     * @param g The graphic output.
+     * @param id The image identifier.
+     * @param dx The horizontal location on screen.
+     * @param dy The vertical location on screen.
+     * @param sx The horizontal clip location in image.
+     * @param sy The vertical clip location in image.
+     * @param width The clip width.
+     * @param height The clip height.
+     * @param flip The mirror applied on screen.
+     */
+    private void draw(Graphic g, int id, int dx, int dy, int sx, int sy, int width, int height, Mirror flip)
+    {
+        final ImageBuffer source = images.get(id);
+        if (flip == Mirror.HORIZONTAL)
+        {
+            g.drawImage(source, dx + width, dy, dx, dy + height, sx, sy, sx + width, sy + height);
+        }
+        else if (flip == Mirror.VERTICAL)
+        {
+            g.drawImage(source, dx, dy + height, dx + width, dy, sx, sy, sx + width, sy + height);
+        }
+        else
+        {
+            g.drawImage(source, dx, dy, dx + width, dy + height, sx, sy, sx + width, sy + height);
+        }
+    }
+
+    /**
+     * Allocate commands arrays, keeping current commands.
+     * 
+     * @param capacity The new capacity.
+     */
+    private void allocate(int capacity)
+    {
+        if (image == null)
+        {
+            image = new int[capacity];
+            x = new int[capacity];
+            y = new int[capacity];
+            clipX = new int[capacity];
+            clipY = new int[capacity];
+            clipWidth = new int[capacity];
+            clipHeight = new int[capacity];
+            mirror = new Mirror[capacity];
+            keys = new long[capacity];
+        }
+        else
+        {
+            image = Arrays.copyOf(image, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            clipX = Arrays.copyOf(clipX, capacity);
+            clipY = Arrays.copyOf(clipY, capacity);
+            clipWidth = Arrays.copyOf(clipWidth, capacity);
+            clipHeight = Arrays.copyOf(clipHeight, capacity);
+            mirror = Arrays.copyOf(mirror, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+/**
+ * Layers of {@link RenderCommands}, flushed in declaration order.
+ */
+public enum RenderLayer
+{
+    /** Map tiles, never overlapping. */
+    MAP(true),
+    /** Entities, which may overlap. */
+    ENTITIES(false);
+
+    /** Sorted by image flag. */
+    private final boolean sorted;
+
+    /**
+     * Create layer.
+     * 
+     * @param sorted <code>true</code> if commands can be sorted by image, <code>false</code> to keep submit order.
+     */
+    RenderLayer(boolean sorted)
+    {
+        this.sorted = sorted;
+    }
+
+    /**
+     * Check if commands can be sorted by image. Only layers without overlapping draws can be sorted.
+     * 
+     * @return <code>true</code> if commands can be sorted by image, <code>false</code> to keep submit order.
+     */
+    public boolean isSorted()
+    {
+        return sorted;
+    }
+}
@@ -17,61 +17,26 @@
  */
 package com.b3dgs.lionheart;
 
-import java.io.IOException;
-
 import com.b3dgs.lionengine.Context;
-import com.b3dgs.lionengine.Verbose;
 import com.b3dgs.lionengine.game.Services;
 import com.b3dgs.lionengine.game.feature.SequenceGame;
 import com.b3dgs.lionengine.game.feature.WorldGame;
-import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
-import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
-import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersister;
-import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersisterModel;
-import com.b3dgs.lionengine.io.FileWriting;
-import com.b3dgs.lionengine.util.UtilStream;
 
 /**
  * Game scene implementation.
  */
 public class Scene extends SequenceGame
 {
-    /**
-     * Import the level and save it.
-     * 
-     * @param level The level to import.
-     */
-    private static void importLevelAndSave(Level level)
-    {
-        final Services services = new Services();
-        final MapTile map = services.create(MapTileGame.class);
-        map.create(level.getRip());
-        final MapTilePersister mapPersister = map.addFeatureAndGet(new MapTilePersisterModel(services));
-        FileWriting output = null;
-        try
-        {
-            output = new FileWriting(level.getFile());
-            mapPersister.save(output);
-        }
-        catch (final IOException exception)
-        {
-            Verbose.exception(exception, "Error on saving map !");
-        }
-        finally
-        {
-            UtilStream.safeClose(output);
-        }
-    }
-
-    /** Current level. */
-    private final Level level;
+    /** Prepared level. */
+    private final PreparedLevel level;
 
     /**
      * Create the scene.
      * 
      * @param context The context reference.
+     * @param level The prepared level.
      */
-    public Scene(Context context)
+    public Scene(Context context, PreparedLevel level)
     {
         super(context, Constant.NATIVE, new WorldCreator()
         {
@@ -81,16 +46,20 @@ public class Scene extends SequenceGame
                 return new World(context, services);
             }
         });
-        level = Level.SWAMP_1_1;
+        this.level = level;
     }
 
     @Override
     public void load()
     {
-        if (!level.getFile().exists())
-        {
-            importLevelAndSave(level);
-        }
-        world.loadFromFile(level.getFile());
+        ((World) world).loadLevel(level);
+    }
+
+    @Override
+    public void onTerminated(boolean hasNextSequence)
+    {
+        super.onTerminated(hasNextSequence);
+
+        ((World) world).close();
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.Updatable;
+
+/**
+ * Simulation thread, calling a step at a fixed rate independently from rendering.
+ * <p>
+ * Each step is called with an extrapolation of <code>1.0</code>. When the thread falls behind by more than
+ * {@link #MAX_LATE} steps, late steps are dropped instead of being run in burst.
+ * </p>
+ */
+final class Simulation implements Runnable
+{
+    /** Thread name. */
+    private static final String THREAD_NAME = "Lionheart simulation";
+    /** Step extrapolation. */
+    private static final double EXTRP = 1.0;
+    /** Nano seconds in a second. */
+    private static final long ONE_SECOND_IN_NANO = 1000000000L;
+    /** Nano seconds in a milli second. */
+    private static final long NANO_TO_MILLI = 1000000L;
+    /** Maximum late steps before dropping them. */
+    private static final int MAX_LATE = 5;
+
+    /** Simulation step. */
+    private final Updatable step;
+    /** Step period in nano seconds. */
+    private final long period;
+    /** Simulation thread. */
+    private final Thread thread;
+    /** Running flag. */
+    private volatile boolean running;
+    /** Dropped steps. */
+    private volatile long dropped;
+
+    /**
+     * Create simulation.
+     * 
+     * @param step The simulation step.
+     * @param rate The steps per second (must be strictly positive).
+     */
+    Simulation(Updatable step, int rate)
+    {
+        Check.superiorStrict(rate, 0);
+
+        this.step = step;
+        period = ONE_SECOND_IN_NANO / rate;
+        thread = new Thread(this, THREAD_NAME);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start the simulation thread.
+     */
+    void start()
+    {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stop the simulation thread and wait for its end.
+     */
+    void stop()
+    {
+        running = false;
+        thread.interrupt();
+        try
+        {
+            thread.join();
+        }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the number of dropped steps.
+     * 
+     * @return The dropped steps.
+     */
+    long getDropped()
+    {
+        return dropped;
+    }
+
+    /*
+     * Runnable
+     */
+
+    @Override
+    public void run()
+    {
+        long next = System.nanoTime();
+        while (running)
+        {
+            step.update(EXTRP);
+
+            next += period;
+            final long now = System.nanoTime();
+            if (now - next > period * MAX_LATE)
+            {
+                dropped += (now - next) / period;
+                next = now;
+            }
+            final long wait = next - now;
+            if (wait > 0L)
+            {
+                try
+                {
+                    Thread.sleep(wait / NANO_TO_MILLI, (int) (wait % NANO_TO_MILLI));
+                }
+                catch (final InterruptedException exception)
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
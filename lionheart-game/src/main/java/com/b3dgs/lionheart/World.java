@@ -17,11 +17,19 @@
  */
 package com.b3dgs.lionheart;
 
+import java.awt.event.KeyEvent;
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.b3dgs.lionengine.Context;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Resolution;
+import com.b3dgs.lionengine.Updatable;
+import com.b3dgs.lionengine.Verbose;
 import com.b3dgs.lionengine.core.Medias;
 import com.b3dgs.lionengine.core.sequence.ResolutionChanger;
+import com.b3dgs.lionengine.game.Camera;
 import com.b3dgs.lionengine.game.Services;
 import com.b3dgs.lionengine.game.feature.WorldGame;
 import com.b3dgs.lionengine.game.feature.collidable.ComponentCollision;
@@ -29,24 +37,59 @@ import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
 import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersister;
 import com.b3dgs.lionengine.game.feature.tile.map.persister.MapTilePersisterModel;
-import com.b3dgs.lionengine.game.feature.tile.map.raster.MapTileRastered;
-import com.b3dgs.lionengine.game.feature.tile.map.raster.MapTileRasteredModel;
+import com.b3dgs.lionengine.game.feature.tile.map.viewer.MapTileRenderer;
 import com.b3dgs.lionengine.game.feature.tile.map.viewer.MapTileViewer;
 import com.b3dgs.lionengine.game.feature.tile.map.viewer.MapTileViewerModel;
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.io.FileReading;
 import com.b3dgs.lionengine.io.FileWriting;
 import com.b3dgs.lionengine.io.InputDevicePointer;
+import com.b3dgs.lionengine.io.awt.Keyboard;
 import com.b3dgs.lionengine.util.UtilMath;
+import com.b3dgs.lionheart.landscape.AssetCache;
+import com.b3dgs.lionheart.landscape.BandCompositor;
+import com.b3dgs.lionheart.landscape.DrawCalls;
 import com.b3dgs.lionheart.landscape.FactoryLandscape;
 import com.b3dgs.lionheart.landscape.Landscape;
 import com.b3dgs.lionheart.landscape.LandscapeType;
+import com.b3dgs.lionheart.level.ChunkedLevel;
+import com.b3dgs.lionheart.level.MapStreamer;
+import com.b3dgs.lionheart.level.RasterSheets;
+import com.b3dgs.lionheart.level.RasterTiles;
 
 /**
  * World game representation.
  */
 public class World extends WorldGame
 {
+    /** Profiler overlay toggle key. */
+    private static final Integer PROFILER_KEY = Integer.valueOf(KeyEvent.VK_F3);
+    /** Profiler CSV file. */
+    private static final String PROFILER_FILE = "frames.csv";
+    /** Profiler overlay location. */
+    private static final int PROFILER_OFFSET = 4;
+    /** Next landscape theme key. */
+    private static final Integer THEME_KEY = Integer.valueOf(KeyEvent.VK_F4);
+    /** Landscape theme fade duration, in updates. */
+    private static final double THEME_FADE = 120.0;
+    /** Native framebuffer render toggle key. */
+    private static final Integer NATIVE_RENDER_KEY = Integer.valueOf(KeyEvent.VK_F5);
+    /** Landscape band compositing toggle key. */
+    private static final Integer COMPOSITING_KEY = Integer.valueOf(KeyEvent.VK_F6);
+    /** Simulation thread toggle key. */
+    private static final Integer DECOUPLED_KEY = Integer.valueOf(KeyEvent.VK_F7);
+    /** Zoom levels, each one having its own prescaled landscape surfaces. */
+    private static final double[] ZOOM_LEVELS =
+    {
+        0.5, 0.71, 1.0, 1.19, 1.42
+    };
+    /** Default zoom level index. */
+    private static final int ZOOM_DEFAULT = 2;
+    /** Zoom pointer sensibility. */
+    private static final double ZOOM_SPEED = 100.0;
+    /** Maximum simulation steps applied to landscape in one rendered frame. */
+    private static final int MAX_CATCHUP = 4;
+
     /** Resolution changer. */
     private final ResolutionChanger changer = services.get(ResolutionChanger.class);
     /** Map reference. */
@@ -55,16 +98,50 @@ public class World extends WorldGame
     private final MapTileViewer mapViewer = map.addFeatureAndGet(new MapTileViewerModel(services));
     /** Map persister. */
     private final MapTilePersister mapPersister = map.addFeatureAndGet(new MapTilePersisterModel(services));
-    /** Map raster. */
-    private final MapTileRastered mapRaster = map.addFeatureAndGet(new MapTileRasteredModel(services));
     /** Pointer device. */
     private final InputDevicePointer pointer = getInputDevice(InputDevicePointer.class);
+    /** Keyboard device. */
+    private final Keyboard keyboard = getInputDevice(Keyboard.class);
+    /** Frame profiler. */
+    private final FrameProfiler profiler = new FrameProfiler();
+    /** Render commands. */
+    private final RenderCommands commands = services.add(new RenderCommands(RenderCommands.DEFAULT_CAPACITY));
+    /** Simulation camera, only used by the simulation thread. */
+    private final Camera simCamera = new Camera();
+    /** Lock held while entities and map are updated or drawn, as simulation may run on its own thread. */
+    private final Object lock = new Object();
+    /** View requested for the simulation camera, <code>null</code> if unchanged. */
+    private final AtomicReference<Resolution> simView = new AtomicReference<Resolution>();
     /** Landscape factory. */
     private final FactoryLandscape factoryLandscape;
     /** Landscape. */
     private Landscape landscape;
-
-    private double scale = 1.0;
+    /** Map raster renderer. */
+    private MapTileRenderer mapRaster;
+    /** Lazy raster cache capacity in tile images, <code>0</code> to use cached raster sheets. */
+    private int rasterCache = RasterTiles.DEFAULT_CAPACITY;
+    /** Map streamer, <code>null</code> if whole map loaded. */
+    private MapStreamer streamer;
+    /** Native framebuffer, <code>null</code> if rendering at sequence resolution. */
+    private NativeFramebuffer framebuffer;
+    /** Landscape compositor, <code>null</code> if none. */
+    private BandCompositor compositor;
+    /** Simulation thread, <code>null</code> if update and render are on the same thread. */
+    private Simulation simulation;
+    /** Decoupled update and render flag. */
+    private boolean decoupled;
+    /** Last simulation step published by the simulation thread. */
+    private volatile WorldSnapshot snapshot;
+    /** Simulation step counter, only used by the simulation thread. */
+    private long simStep;
+    /** Last simulation step drawn. */
+    private long renderedStep;
+    /** Continuous zoom scale driven by pointer. */
+    private double scale = ZOOM_LEVELS[ZOOM_DEFAULT];
+    /** Applied zoom level index. */
+    private int zoom = ZOOM_DEFAULT;
+    /** Requested zoom level index, applied on next render. */
+    private volatile int zoomPending = ZOOM_DEFAULT;
 
     /**
      * Create the world.
@@ -81,6 +158,8 @@ public class World extends WorldGame
 
         factoryLandscape = new FactoryLandscape(source, scaleH, scaleV, false);
 
+        commands.setView(source.getWidth(), source.getHeight());
+
         handler.addComponent(new ComponentCollision());
         handler.add(map);
     }
@@ -88,27 +167,484 @@ public class World extends WorldGame
     @Override
     public void update(double extrp)
     {
-        pointer.update(extrp);
-        if (pointer.getClick() == 1)
+        if (keyboard.isPressedOnce(PROFILER_KEY))
         {
-            camera.moveLocation(extrp, -pointer.getMoveX(), pointer.getMoveY());
+            setProfiling(!profiler.isEnabled());
         }
-        else if (pointer.getClick() == 2)
+        if (keyboard.isPressedOnce(THEME_KEY) && landscape != null)
         {
-            scale = UtilMath.clamp(scale + pointer.getMoveY() / 100.0, 0.5, 1.42);
-            changer.setResolution(source.getScaled(scale, scale));
+            fadeToNextTheme();
         }
+        if (keyboard.isPressedOnce(NATIVE_RENDER_KEY))
+        {
+            setNativeRender(framebuffer == null);
+        }
+        if (keyboard.isPressedOnce(COMPOSITING_KEY))
+        {
+            setCompositing(compositor == null ? Runtime.getRuntime().availableProcessors() : 0);
+        }
+        if (keyboard.isPressedOnce(DECOUPLED_KEY))
+        {
+            setDecoupled(!decoupled);
+        }
+        if (simulation != null)
+        {
+            return;
+        }
+        updateInput(extrp, camera);
+
+        final long start = profiler.start();
         super.update(extrp);
+        profiler.stop(FrameSection.ENTITIES_UPDATE, start);
         landscape.update(extrp, camera);
         camera.moveLocation(extrp, 0.0, 0.0);
+        if (streamer != null)
+        {
+            streamer.update(camera);
+        }
     }
 
     @Override
     public void render(Graphic g)
     {
-        landscape.renderBackground(g);
-        super.render(g);
-        landscape.renderForeground(g);
+        if (simulation != null)
+        {
+            applySnapshot();
+        }
+        if (zoomPending != zoom)
+        {
+            zoom = zoomPending;
+            final Resolution resolution = source.getScaled(ZOOM_LEVELS[zoom], ZOOM_LEVELS[zoom]);
+            if (framebuffer != null)
+            {
+                framebuffer.setSize(resolution.getWidth(), resolution.getHeight());
+                setView(resolution.getWidth(), resolution.getHeight(), resolution.getRate());
+            }
+            else
+            {
+                changer.setResolution(resolution);
+            }
+        }
+
+        final Graphic target;
+        if (framebuffer != null)
+        {
+            target = framebuffer.getGraphic();
+            landscape.renderBackground(framebuffer);
+        }
+        else
+        {
+            target = g;
+            landscape.renderBackground(g);
+        }
+        final long start = profiler.start();
+        synchronized (lock)
+        {
+            super.render(target);
+            // Overlays read entities state
+            commands.flush(target);
+        }
+        profiler.stop(FrameSection.MAP_RENDER, start);
+        if (framebuffer != null)
+        {
+            landscape.renderForeground(framebuffer);
+            framebuffer.render(g);
+        }
+        else
+        {
+            landscape.renderForeground(g);
+        }
+
+        if (profiler.isEnabled())
+        {
+            try
+            {
+                profiler.endFrame();
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Unable to write frame profile !");
+                profiler.stopCsv();
+            }
+            profiler.setInfo(commands.getReport() + " landscape draws " + DrawCalls.getLastFrame());
+            profiler.render(g, PROFILER_OFFSET, PROFILER_OFFSET);
+        }
+        commands.endFrame();
+    }
+
+    /**
+     * Enable or disable the frame profiler, with its overlay and CSV output in {@link #PROFILER_FILE}.
+     * 
+     * @param enabled <code>true</code> to enable, <code>false</code> to disable.
+     */
+    public void setProfiling(boolean enabled)
+    {
+        profiler.setEnabled(enabled);
+        if (enabled)
+        {
+            try
+            {
+                profiler.startCsv(new File(PROFILER_FILE));
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Unable to create frame profile: ", PROFILER_FILE);
+            }
+        }
+        else
+        {
+            profiler.stopCsv();
+        }
+    }
+
+    /**
+     * Render every layer to a framebuffer of the sequence resolution, upscaled once to the output with the nearest
+     * integer factor, instead of letting the engine scale the sequence. Layers pixel work then stays constant whatever
+     * the window size, and scanlines shifts are applied on the framebuffer pixels.
+     * 
+     * @param enabled <code>true</code> to render to native framebuffer, <code>false</code> to render to sequence.
+     */
+    public void setNativeRender(boolean enabled)
+    {
+        final Resolution resolution = source.getScaled(ZOOM_LEVELS[zoom], ZOOM_LEVELS[zoom]);
+        if (enabled && framebuffer == null)
+        {
+            framebuffer = new NativeFramebuffer(resolution.getWidth(), resolution.getHeight());
+            changer.setResolution(config.getOutput());
+            setView(resolution.getWidth(), resolution.getHeight(), resolution.getRate());
+        }
+        else if (!enabled && framebuffer != null)
+        {
+            framebuffer.dispose();
+            framebuffer = null;
+            changer.setResolution(resolution);
+        }
+    }
+
+    /**
+     * Composite landscape layers to the native framebuffer in horizontal bands, one band per thread. Only used with
+     * {@link #setNativeRender(boolean)}.
+     * 
+     * @param threads The number of compositing threads, <code>0</code> to render landscape layers with graphic.
+     */
+    public void setCompositing(int threads)
+    {
+        if (compositor != null)
+        {
+            compositor.close();
+            compositor = null;
+        }
+        if (threads > 0)
+        {
+            compositor = new BandCompositor(threads);
+        }
+        if (landscape != null)
+        {
+            landscape.setCompositor(compositor);
+        }
+    }
+
+    /**
+     * Run the simulation on its own thread, or back on the render thread. When decoupled, input, camera and entities
+     * are updated at a fixed rate by the simulation thread, which publishes a {@link WorldSnapshot} after each step.
+     * Landscape and map streaming follow the latest snapshot camera, so a slow frame does not stretch the simulation
+     * step. Entities and map are updated and drawn under the world lock, so rendering always draws a complete step.
+     * 
+     * @param enabled <code>true</code> to decouple update and render, <code>false</code> to run them on one thread.
+     */
+    public void setDecoupled(boolean enabled)
+    {
+        decoupled = enabled;
+        if (enabled && landscape != null)
+        {
+            startSimulation();
+        }
+        else if (!enabled)
+        {
+            stopSimulation();
+        }
+    }
+
+    /**
+     * Set the map raster mode, used when level was not prepared with raster sheets. Must be called before level
+     * loading.
+     * 
+     * @param capacity The lazy raster cache capacity in tile images, <code>0</code> to use cached raster sheets.
+     */
+    public void setRasterCache(int capacity)
+    {
+        rasterCache = capacity;
+    }
+
+    /**
+     * Load the prepared level, streamed if prepared so, with its raster sheets if prepared.
+     * 
+     * @param prepared The prepared level.
+     */
+    public void loadLevel(PreparedLevel prepared)
+    {
+        close();
+        final ChunkedLevel level = prepared.getData();
+        if (prepared.getStreamingMargin() >= 0)
+        {
+            level.create(map);
+            streamer = new MapStreamer(level, map, prepared.getStreamingMargin());
+        }
+        else
+        {
+            level.load(map, prepared.getChunks());
+        }
+        onMapLoaded(prepared.getLandscape(), prepared.getRasterSheets());
+        if (streamer != null)
+        {
+            streamer.update(camera);
+        }
+    }
+
+    /**
+     * Release level resources.
+     */
+    public void close()
+    {
+        stopSimulation();
+        setProfiling(false);
+        if (streamer != null)
+        {
+            streamer.close();
+            streamer = null;
+        }
+        if (mapRaster instanceof RasterTiles)
+        {
+            final RasterTiles tiles = (RasterTiles) mapRaster;
+            Verbose.info("Raster tiles: ",
+                         String.valueOf(tiles.getSize()),
+                         " cached, ",
+                         String.valueOf(tiles.getHits()),
+                         " hits, ",
+                         String.valueOf(tiles.getMisses()),
+                         " misses, ",
+                         String.valueOf(tiles.getEvictions()),
+                         " evictions, ",
+                         String.valueOf(tiles.getIndexedBytes() / 1024L),
+                         " KB indexed");
+            tiles.clear();
+        }
+        if (landscape != null)
+        {
+            landscape.dispose();
+            landscape = null;
+            final AssetCache assets = FactoryLandscape.getAssets();
+            Verbose.info("Landscape assets: ",
+                         String.valueOf(assets.getSize()),
+                         " cached, ",
+                         String.valueOf(Math.round(assets.getHitRate() * 100.0)),
+                         "% hits, ",
+                         String.valueOf(assets.getResidentBytes() / 1024L),
+                         " KB resident");
+        }
+    }
+
+    /**
+     * Crossfade landscape to the next theme of its world.
+     */
+    private void fadeToNextTheme()
+    {
+        final LandscapeType current = landscape.getType();
+        final LandscapeType[] themes = LandscapeType.getWorldLandscape(current.getWorld());
+        for (int i = 0; i < themes.length; i++)
+        {
+            if (themes[i] == current)
+            {
+                landscape.setTheme(themes[(i + 1) % themes.length], THEME_FADE);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Update input on the camera.
+     * 
+     * @param extrp The extrapolation value.
+     * @param target The camera moved by pointer.
+     */
+    private void updateInput(double extrp, Camera target)
+    {
+        pointer.update(extrp);
+        if (pointer.getClick() == 1)
+        {
+            target.moveLocation(extrp, -pointer.getMoveX(), pointer.getMoveY());
+        }
+        else if (pointer.getClick() == 2)
+        {
+            scale = UtilMath.clamp(scale + pointer.getMoveY() / ZOOM_SPEED,
+                                   ZOOM_LEVELS[0],
+                                   ZOOM_LEVELS[ZOOM_LEVELS.length - 1]);
+            zoomPending = getNearestZoom(scale);
+        }
+    }
+
+    /**
+     * Simulation step, called by the simulation thread.
+     * 
+     * @param extrp The extrapolation value.
+     */
+    private void simulate(double extrp)
+    {
+        final Resolution view = simView.getAndSet(null);
+        if (view != null)
+        {
+            simCamera.setView(0, 0, view.getWidth(), view.getHeight(), view.getHeight());
+            simCamera.setLimits(map);
+        }
+        updateInput(extrp, simCamera);
+        synchronized (lock)
+        {
+            super.update(extrp);
+        }
+        simCamera.moveLocation(extrp, 0.0, 0.0);
+
+        simStep++;
+        snapshot = new WorldSnapshot(simStep, simCamera.getX(), simCamera.getY());
+    }
+
+    /**
+     * Move the render camera to the last snapshot, updating landscape once per simulation step elapsed since last
+     * drawn snapshot, up to {@link #MAX_CATCHUP}.
+     */
+    private void applySnapshot()
+    {
+        final WorldSnapshot current = snapshot;
+        final long steps = current.getStep() - renderedStep;
+        if (steps > 0L)
+        {
+            final int count = (int) Math.min(steps, MAX_CATCHUP);
+            final double vx = (current.getCameraX() - camera.getX()) / count;
+            final double vy = (current.getCameraY() - camera.getY()) / count;
+            for (int i = 0; i < count; i++)
+            {
+                camera.moveLocation(1.0, vx, vy);
+                landscape.update(1.0, camera);
+            }
+            if (streamer != null)
+            {
+                synchronized (lock)
+                {
+                    streamer.update(camera);
+                }
+            }
+            renderedStep = current.getStep();
+        }
+    }
+
+    /**
+     * Start the simulation thread from the current camera, if not already started.
+     */
+    private void startSimulation()
+    {
+        if (simulation == null)
+        {
+            simCamera.setView(0, 0, camera.getWidth(), camera.getHeight(), camera.getHeight());
+            simCamera.setLimits(map);
+            simCamera.setIntervals(0, 0);
+            simCamera.teleport(camera.getX(), camera.getY());
+            simView.set(null);
+            snapshot = new WorldSnapshot(simStep, camera.getX(), camera.getY());
+            renderedStep = simStep;
+
+            simulation = new Simulation(new Updatable()
+            {
+                @Override
+                public void update(double extrp)
+                {
+                    simulate(extrp);
+                }
+            }, Constant.NATIVE.getRate());
+            simulation.start();
+        }
+    }
+
+    /**
+     * Stop the simulation thread if started.
+     */
+    private void stopSimulation()
+    {
+        if (simulation != null)
+        {
+            simulation.stop();
+            Verbose.info("Simulation stopped, ", String.valueOf(simulation.getDropped()), " dropped steps");
+            simulation = null;
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Get the zoom level index nearest to scale.
+     * 
+     * @param scale The continuous scale.
+     * @return The nearest zoom level index.
+     */
+    private static int getNearestZoom(double scale)
+    {
+        int nearest = 0;
+        for (int i = 1; i < ZOOM_LEVELS.length; i++)
+        {
+            if (Math.abs(ZOOM_LEVELS[i] - scale) < Math.abs(ZOOM_LEVELS[nearest] - scale))
+            {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Prepare map rendering, camera and landscape once map loaded.
+     * Landscape surfaces of each zoom level are built here, so zooming does not rebuild them.
+     * 
+     * @param landscape The landscape to use.
+     * @param rasterSheets The raster sheets loaded, <code>null</code> to use the {@link #setRasterCache(int)} mode.
+     */
+    private void onMapLoaded(Landscape landscape, RasterSheets rasterSheets)
+    {
+        final Media raster = Medias.create(map.getMedia().getParentPath(), RasterSheets.FILE);
+        if (rasterSheets != null)
+        {
+            rasterSheets.setCommands(commands);
+            mapRaster = rasterSheets;
+        }
+        else if (rasterCache > 0)
+        {
+            final RasterTiles tiles = new RasterTiles(map, raster, rasterCache);
+            tiles.setCommands(commands);
+            mapRaster = tiles;
+        }
+        else
+        {
+            final RasterSheets sheets = RasterSheets.load(map, raster);
+            sheets.setCommands(commands);
+            mapRaster = sheets;
+        }
+        mapViewer.clear();
+        mapViewer.addRenderer(mapRaster);
+
+        camera.setLimits(map);
+        camera.setIntervals(0, 0);
+
+        this.landscape = landscape;
+        landscape.setProfiler(profiler);
+        landscape.setCompositor(compositor);
+
+        for (final double level : ZOOM_LEVELS)
+        {
+            final Resolution resolution = source.getScaled(level, level);
+            landscape.setScreenSize(resolution.getWidth(), resolution.getHeight());
+        }
+        final Resolution current = source.getScaled(ZOOM_LEVELS[zoom], ZOOM_LEVELS[zoom]);
+        landscape.setScreenSize(current.getWidth(), current.getHeight());
+
+        if (decoupled)
+        {
+            startSimulation();
+        }
     }
 
     @Override
@@ -121,20 +657,37 @@ public class World extends WorldGame
     protected void loading(FileReading file) throws IOException
     {
         mapPersister.load(file);
-        mapRaster.loadSheets(Medias.create(map.getMedia().getParentPath(), "raster3.xml"), false);
-        mapViewer.clear();
-        mapViewer.addRenderer(mapRaster);
-
-        camera.setLimits(map);
-        camera.setIntervals(0, 0);
+        onMapLoaded(factoryLandscape.createLandscape(LandscapeType.SWAMP_DAY), null);
+    }
 
-        landscape = factoryLandscape.createLandscape(LandscapeType.SWAMP_DAY);
+    /**
+     * Set the rendered view size to camera and landscape.
+     * 
+     * @param width The view width.
+     * @param height The view height.
+     * @param rate The view rate.
+     */
+    private void setView(int width, int height, int rate)
+    {
+        camera.setView(0, 0, width, height, height);
+        commands.setView(width, height);
+        simView.set(new Resolution(width, height, rate));
+        if (landscape != null)
+        {
+            landscape.setScreenSize(width, height);
+        }
     }
 
     @Override
     public void onResolutionChanged(int width, int height, int rate)
     {
-        camera.setView(0, 0, width, height, height);
-        landscape.setScreenSize(width, height);
+        if (framebuffer != null)
+        {
+            framebuffer.setOutput(width, height);
+        }
+        else
+        {
+            setView(width, height, rate);
+        }
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart;
+
+/**
+ * Immutable world state published by the simulation thread after each step, and read by the render thread.
+ * <p>
+ * It contains the camera location, from which the landscape offsets are derived. Entities are not copied: they are
+ * drawn under the world lock, between two simulation steps.
+ * </p>
+ */
+public final class WorldSnapshot
+{
+    /** Simulation step number. */
+    private final long step;
+    /** Camera horizontal location. */
+    private final double cameraX;
+    /** Camera vertical location. */
+    private final double cameraY;
+
+    /**
+     * Create snapshot.
+     * 
+     * @param step The simulation step number.
+     * @param cameraX The camera horizontal location.
+     * @param cameraY The camera vertical location.
+     */
+    WorldSnapshot(long step, double cameraX, double cameraY)
+    {
+        this.step = step;
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+    }
+
+    /**
+     * Get the simulation step number.
+     * 
+     * @return The simulation step number.
+     */
+    public long getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Get the camera horizontal location.
+     * 
+     * @return The camera horizontal location.
+     */
+    public double getCameraX()
+    {
+        return cameraX;
+    }
+
+    /**
+     * Get the camera vertical location.
+     * 
+     * @return The camera vertical location.
+     */
+    public double getCameraY()
+    {
+        return cameraY;
+    }
+}
@@ -44,12 +44,18 @@ final class AncientTown extends BackgroundGame
      * Constructor.
      * 
      * @param source The resolution source reference.
+     * @param assets The landscape assets.
      * @param scaleH The horizontal factor.
      * @param scaleV The horizontal factor.
      * @param theme The theme name.
      * @param flickering The flickering flag.
      */
-    AncientTown(Resolution source, double scaleH, double scaleV, String theme, boolean flickering)
+    AncientTown(Resolution source,
+                LandscapeAssets assets,
+                double scaleH,
+                double scaleV,
+                String theme,
+                boolean flickering)
     {
         super(theme, 0, 512);
         this.scaleH = scaleH;
@@ -57,7 +63,7 @@ final class AncientTown extends BackgroundGame
         this.flickering = flickering;
         final String path = UtilFolder.getPath(Landscape.DIR_BACKGROUNDS, "ancient_town", theme);
         final int width = source.getWidth();
-        backdrop = new Backdrop(path, this.flickering, width);
+        backdrop = new Backdrop(path, assets, this.flickering, width);
         add(backdrop);
         totalHeight = 120;
         setScreenSize(source.getWidth(), source.getHeight());
@@ -79,6 +85,14 @@ final class AncientTown extends BackgroundGame
         backdrop.setScreenWidth(width);
     }
 
+    /**
+     * Release the strips surfaces.
+     */
+    void dispose()
+    {
+        backdrop.dispose();
+    }
+
     /**
      * Backdrop represents the back background plus top background elements.
      */
@@ -88,6 +102,10 @@ final class AncientTown extends BackgroundGame
         private final BackgroundElement backcolorA;
         /** Backdrop color B. */
         private final BackgroundElement backcolorB;
+        /** Backdrop color A strip. */
+        private final SpriteStrip stripA;
+        /** Backdrop color B strip, <code>null</code> if not flickering. */
+        private final SpriteStrip stripB;
         /** Flickering flag. */
         private final boolean flickering;
         /** Screen width. */
@@ -101,23 +119,27 @@ final class AncientTown extends BackgroundGame
          * Constructor.
          * 
          * @param path The backdrop path.
+         * @param assets The landscape assets.
          * @param flickering The flickering flag effect.
          * @param screenWidth The screen width.
          */
-        Backdrop(String path, boolean flickering, int screenWidth)
+        Backdrop(String path, LandscapeAssets assets, boolean flickering, int screenWidth)
         {
             this.flickering = flickering;
             if (flickering)
             {
-                backcolorA = createElement(path, "backcolor_a.png", 0, 0);
-                backcolorB = createElement(path, "backcolor_b.png", 0, 0);
+                backcolorA = assets.createElement(path, "backcolor_a.png", 0, 0);
+                backcolorB = assets.createElement(path, "backcolor_b.png", 0, 0);
+                stripB = new SpriteStrip((Sprite) backcolorB.getRenderable(), screenWidth);
                 flickerCount = 0;
             }
             else
             {
-                backcolorA = createElement(path, "backcolor.png", 0, 0);
+                backcolorA = assets.createElement(path, "backcolor.png", 0, 0);
                 backcolorB = null;
+                stripB = null;
             }
+            stripA = new SpriteStrip((Sprite) backcolorA.getRenderable(), screenWidth);
             setScreenWidth(screenWidth);
         }
 
@@ -129,6 +151,23 @@ final class AncientTown extends BackgroundGame
         void setScreenWidth(int width)
         {
             screenWidth = width;
+            stripA.setScreenWidth(width);
+            if (stripB != null)
+            {
+                stripB.setScreenWidth(width);
+            }
+        }
+
+        /**
+         * Release the strips surfaces.
+         */
+        void dispose()
+        {
+            stripA.dispose();
+            if (stripB != null)
+            {
+                stripB.dispose();
+            }
         }
 
         @Override
@@ -150,22 +189,16 @@ final class AncientTown extends BackgroundGame
         public void render(Graphic g)
         {
             // Render back background first
-            final Sprite sprite;
+            final SpriteStrip strip;
             if (flickerType || !flickering)
             {
-                sprite = (Sprite) backcolorA.getRenderable();
+                strip = stripA;
             }
             else
             {
-                sprite = (Sprite) backcolorB.getRenderable();
-            }
-            for (int i = 0; i < Math.ceil(screenWidth / (double) sprite.getWidth()); i++)
-            {
-                final int x = backcolorA.getMainX() + i * sprite.getWidth();
-                final double y = backcolorA.getOffsetY() + backcolorA.getMainY();
-                sprite.setLocation(x, y);
-                sprite.render(g);
+                strip = stripB;
             }
+            strip.render(g, backcolorA.getMainX(), (int) (backcolorA.getOffsetY() + backcolorA.getMainY()));
         }
     }
 }
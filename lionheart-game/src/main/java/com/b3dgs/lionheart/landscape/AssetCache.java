@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Raster;
+import com.b3dgs.lionengine.graphic.RasterData;
+import com.b3dgs.lionengine.util.UtilColor;
+
+/**
+ * Reference counted cache of decoded landscape images, shared by all landscapes.
+ * <p>
+ * Each get increments the asset references, each release decrements them. Assets without reference are kept in least
+ * recently released order while their total size fits the retained budget, so a landscape created again, such as for
+ * the next level of the same world, reuses decoded images instead of loading them again. Cache can be used
+ * concurrently.
+ * </p>
+ */
+public final class AssetCache
+{
+    /** Default retained bytes of assets without reference. */
+    public static final long DEFAULT_RETAINED = 16L * 1024L * 1024L;
+    /** Bytes per pixel. */
+    private static final int BYTES_PER_PIXEL = 4;
+    /** Key separator. */
+    private static final String SEPARATOR = "|";
+
+    /** Entries by key. */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    /** Entries by asset. */
+    private final Map<Object, Entry> assets = new IdentityHashMap<Object, Entry>();
+    /** Entries without reference, least recently released first. */
+    private final Map<String, Entry> unused = new LinkedHashMap<String, Entry>();
+    /** Retained bytes budget. */
+    private final long retained;
+    /** Resident bytes. */
+    private long resident;
+    /** Unused bytes. */
+    private long unusedBytes;
+    /** Cache hits. */
+    private long hits;
+    /** Cache misses. */
+    private long misses;
+    /** Cache evictions. */
+    private long evictions;
+
+    /**
+     * Create cache.
+     * 
+     * @param retained The retained bytes of assets without reference (must be positive).
+     */
+    public AssetCache(long retained)
+    {
+        Check.superiorOrEqual(retained, 0L);
+
+        this.retained = retained;
+    }
+
+    /**
+     * Get a decoded image, loading it if not cached, and add a reference.
+     * 
+     * @param media The image media.
+     * @return The shared image, prepared.
+     * @throws LionEngineException If error on loading image.
+     */
+    public synchronized ImageBuffer getImage(Media media)
+    {
+        final String key = media.getPath();
+        Entry entry = acquire(key);
+        if (entry == null)
+        {
+            final ImageBuffer image = Graphics.getImageBuffer(media);
+            image.prepare();
+            entry = add(key, image, getBytes(image));
+        }
+        return (ImageBuffer) entry.asset;
+    }
+
+    /**
+     * Get the raster images of an image, generating them if not cached, and add a reference. Raster images are
+     * generated from consecutive raster colors, as map raster sheets.
+     * 
+     * @param media The image media.
+     * @param rasterFile The raster definition.
+     * @param count The number of rasters.
+     * @return The shared raster images.
+     * @throws LionEngineException If error on loading image or raster.
+     */
+    public synchronized ImageBuffer[] getRasters(Media media, Media rasterFile, int count)
+    {
+        final String key = media.getPath() + SEPARATOR + rasterFile.getPath() + SEPARATOR + count;
+        Entry entry = acquire(key);
+        if (entry == null)
+        {
+            final ImageBuffer source = Graphics.getImageBuffer(media);
+            final Raster raster = Raster.load(rasterFile);
+            final RasterData red = raster.getRed();
+            final RasterData green = raster.getGreen();
+            final RasterData blue = raster.getBlue();
+            final ImageBuffer[] rasters = new ImageBuffer[count];
+            long bytes = 0L;
+            for (int i = 0; i < count; i++)
+            {
+                rasters[i] = Graphics.getRasterBuffer(source,
+                                                      UtilColor.getRasterColor(i, red, count),
+                                                      UtilColor.getRasterColor(i, green, count),
+                                                      UtilColor.getRasterColor(i, blue, count),
+                                                      UtilColor.getRasterColor(i + 1, red, count),
+                                                      UtilColor.getRasterColor(i + 1, green, count),
+                                                      UtilColor.getRasterColor(i + 1, blue, count),
+                                                      source.getHeight());
+                rasters[i].prepare();
+                bytes += getBytes(rasters[i]);
+            }
+            source.dispose();
+            entry = add(key, rasters, bytes);
+        }
+        return (ImageBuffer[]) entry.asset;
+    }
+
+    /**
+     * Remove a reference to an asset. Asset is kept while it fits the retained budget.
+     * 
+     * @param asset The asset returned by this cache.
+     * @throws LionEngineException If asset is not referenced.
+     */
+    public synchronized void release(Object asset)
+    {
+        final Entry entry = assets.get(asset);
+        if (entry == null || entry.references == 0)
+        {
+            throw new LionEngineException("Asset not referenced: ", String.valueOf(asset));
+        }
+        entry.references--;
+        if (entry.references == 0)
+        {
+            unused.put(entry.key, entry);
+            unusedBytes += entry.bytes;
+            trim();
+        }
+    }
+
+    /**
+     * Get the number of gets served from cache.
+     * 
+     * @return The cache hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Get the number of gets which had to load asset.
+     * 
+     * @return The cache misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Get the ratio of gets served from cache.
+     * 
+     * @return The hit rate in <code>[0, 1]</code>, <code>0</code> if no get.
+     */
+    public synchronized double getHitRate()
+    {
+        final long total = hits + misses;
+        if (total == 0L)
+        {
+            return 0.0;
+        }
+        return hits / (double) total;
+    }
+
+    /**
+     * Get the number of assets disposed to respect the retained budget.
+     * 
+     * @return The cache evictions.
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Get the bytes of all decoded assets kept, referenced or not.
+     * 
+     * @return The resident bytes.
+     */
+    public synchronized long getResidentBytes()
+    {
+        return resident;
+    }
+
+    /**
+     * Get the number of assets kept, referenced or not.
+     * 
+     * @return The assets number.
+     */
+    public synchronized int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Get the bytes of an image.
+     * 
+     * @param image The image.
+     * @return The image bytes.
+     */
+    private static long getBytes(ImageBuffer image)
+    {
+        return (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Add a reference to a cached entry.
+     * 
+     * @param key The entry key.
+     * @return The entry, <code>null</code> if not cached.
+     */
+    private Entry acquire(String key)
+    {
+        final Entry entry = entries.get(key);
+        if (entry == null)
+        {
+            misses++;
+        }
+        else
+        {
+            hits++;
+            if (entry.references == 0)
+            {
+                unused.remove(key);
+                unusedBytes -= entry.bytes;
+            }
+            entry.references++;
+        }
+        return entry;
+    }
+
+    /**
+     * Add a loaded asset with one reference.
+     * 
+     * @param key The entry key.
+     * @param asset The loaded asset.
+     * @param bytes The asset bytes.
+     * @return The added entry.
+     */
+    private Entry add(String key, Object asset, long bytes)
+    {
+        final Entry entry = new Entry(key, asset, bytes);
+        entries.put(key, entry);
+        assets.put(asset, entry);
+        resident += bytes;
+        return entry;
+    }
+
+    /**
+     * Dispose least recently released assets until unused ones fit the retained budget.
+     */
+    private void trim()
+    {
+        final Iterator<Entry> iterator = unused.values().iterator();
+        while (unusedBytes > retained && iterator.hasNext())
+        {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            entries.remove(entry.key);
+            assets.remove(entry.asset);
+            unusedBytes -= entry.bytes;
+            resident -= entry.bytes;
+            evictions++;
+            if (entry.asset instanceof ImageBuffer[])
+            {
+                for (final ImageBuffer image : (ImageBuffer[]) entry.asset)
+                {
+                    image.dispose();
+                }
+            }
+            else
+            {
+                ((ImageBuffer) entry.asset).dispose();
+            }
+        }
+    }
+
+    /**
+     * Cached asset with its references.
+     */
+    private static final class Entry
+    {
+        /** Entry key. */
+        private final String key;
+        /** Asset, image or images. */
+        private final Object asset;
+        /** Asset bytes. */
+        private final long bytes;
+        /** References number. */
+        private int references = 1;
+
+        /**
+         * Create entry.
+         * 
+         * @param key The entry key.
+         * @param asset The asset.
+         * @param bytes The asset bytes.
+         */
+        Entry(String key, Object asset, long bytes)
+        {
+            this.key = key;
+            this.asset = asset;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Software compositor, splitting the frame in horizontal bands and compositing all {@link CompositeLayer} of each
+ * band on its own thread.
+ * <p>
+ * Bands are cleared to opaque black, then layers are composited in their adding order. With one thread, bands are
+ * composited on the calling thread, without executor.
+ * </p>
+ */
+public final class BandCompositor
+{
+    /** Threads name. */
+    private static final String THREAD_NAME = "Lionheart compositor";
+    /** Cleared pixel. */
+    private static final int CLEAR = 0xFF000000;
+
+    /** Layers in compositing order. */
+    private final List<CompositeLayer> layers = new ArrayList<CompositeLayer>();
+    /** Number of bands. */
+    private final int threads;
+    /** Bands executor, <code>null</code> if single thread. */
+    private final ExecutorService executor;
+    /** Last composite time in nano seconds. */
+    private long time;
+
+    /**
+     * Create compositor.
+     * 
+     * @param threads The number of threads, one band per thread (must be strictly positive).
+     */
+    public BandCompositor(int threads)
+    {
+        Check.superiorStrict(threads, 0);
+
+        this.threads = threads;
+        if (threads > 1)
+        {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else
+        {
+            executor = null;
+        }
+    }
+
+    /**
+     * Add a layer, composited over the previously added ones.
+     * 
+     * @param layer The layer to add.
+     */
+    public void add(CompositeLayer layer)
+    {
+        layers.add(layer);
+    }
+
+    /**
+     * Remove all layers.
+     */
+    public void clear()
+    {
+        layers.clear();
+    }
+
+    /**
+     * Composite all layers to the frame.
+     * 
+     * @param frame The frame pixels, one row after the other.
+     * @param width The frame width.
+     * @param height The frame height.
+     * @throws LionEngineException If a band failed.
+     */
+    public void composite(final int[] frame, final int width, int height)
+    {
+        final long start = System.nanoTime();
+        for (final CompositeLayer layer : layers)
+        {
+            layer.prepare();
+        }
+        if (executor == null)
+        {
+            compositeBand(frame, width, 0, height);
+        }
+        else
+        {
+            final int bandHeight = (height + threads - 1) / threads;
+            final List<Callable<Void>> bands = new ArrayList<Callable<Void>>(threads);
+            for (int y = 0; y < height; y += bandHeight)
+            {
+                final int fromY = y;
+                final int toY = Math.min(height, y + bandHeight);
+                bands.add(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        compositeBand(frame, width, fromY, toY);
+                        return null;
+                    }
+                });
+            }
+            try
+            {
+                for (final Future<Void> band : executor.invokeAll(bands))
+                {
+                    band.get();
+                }
+            }
+            catch (final ExecutionException exception)
+            {
+                throw new LionEngineException(exception.getCause(), "Error on compositing band !");
+            }
+            catch (final InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new LionEngineException(exception, "Compositing interrupted !");
+            }
+        }
+        time = System.nanoTime() - start;
+    }
+
+    /**
+     * Get the number of threads.
+     * 
+     * @return The number of threads.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Get the last composite time.
+     * 
+     * @return The time in nano seconds.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Stop the compositing threads.
+     */
+    public void close()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Clear band and composite all layers inside.
+     * 
+     * @param frame The frame pixels.
+     * @param width The frame width.
+     * @param fromY The first band row (inclusive).
+     * @param toY The last band row (exclusive).
+     */
+    private void compositeBand(int[] frame, int width, int fromY, int toY)
+    {
+        Arrays.fill(frame, fromY * width, toY * width, CLEAR);
+        for (final CompositeLayer layer : layers)
+        {
+            layer.composite(frame, width, fromY, toY);
+        }
+    }
+}
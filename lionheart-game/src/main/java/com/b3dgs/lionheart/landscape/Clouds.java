@@ -17,13 +17,30 @@
  */
 package com.b3dgs.lionheart.landscape;
 
-import com.b3dgs.lionengine.Media;
-import com.b3dgs.lionengine.game.background.CloudsGame;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.game.background.BackgroundComponent;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.util.UtilMath;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Palette;
 
 /**
  * Clouds implementation.
+ * <p>
+ * Each cloud line is pre-wrapped once per screen width in a strip covering the screen width plus one line width, all
+ * strips being rows of a single atlas kept for later use of the same width. A line is rendered with one clipped blit
+ * of its strip, at the line scroll.
+ * </p>
+ * <p>
+ * Lines can be recolored in place with a palette of the source {@link IndexedImage}. Recoloring is applied to the
+ * current atlas, other atlases are recolored when selected again.
+ * </p>
  */
-class Clouds extends CloudsGame
+final class Clouds implements BackgroundComponent, CompositeLayer
 {
     private static final int LINE_WIDTH = 160;
     private static final int LINE_HEIGHT = 26;
@@ -36,25 +53,214 @@ class Clouds extends CloudsGame
         -1.12, -0.95, -0.72, -0.5, -0.36, -0.28
     };
 
+    /** Source lines pixels, one line under the other. */
+    private final int[] source;
+    /** Scroll by line. */
+    private final double[] x = new double[LINES_SPEED.length];
+    /** Vertical offset. */
+    private final int decY;
+    /** Strips atlas by screen width. */
+    private final Map<Integer, ImageBuffer> atlases = new HashMap<Integer, ImageBuffer>();
+    /** Strips atlas pixels by screen width. */
+    private final Map<Integer, int[]> atlasesPixels = new HashMap<Integer, int[]>();
+    /** Palette applied, by screen width. */
+    private final Map<Integer, Palette> applied = new HashMap<Integer, Palette>();
+    /** Recolor palette as line palettes, empty if not recolored. */
+    private final Palette[] palette = new Palette[1];
+    /** Recolor source, <code>null</code> if not recolored. */
+    private IndexedImage indexed;
+    /** Screen width key. */
+    private Integer key;
+    /** Strips atlas, <code>null</code> if not built. */
+    private ImageBuffer atlas;
+    /** Strips atlas pixels. */
+    private int[] atlasPixels;
+    /** Strips atlas width. */
+    private int atlasWidth;
+    /** Screen width. */
+    private int screenWidth = -1;
+    /** Vertical offset. */
+    private int offsetY;
+
     /**
      * Constructor.
      * 
-     * @param path The resources path.
+     * @param image The clouds image, one line under the other (not owned).
      * @param screenWidth The screen width.
      * @param decY The vertical offset.
      */
-    Clouds(Media path, int screenWidth, int decY)
+    Clouds(ImageBuffer image, int screenWidth, int decY)
+    {
+        this.decY = decY;
+        source = new int[LINE_WIDTH * LINE_HEIGHT * LINES_SPEED.length];
+        image.getRgb(0, 0, LINE_WIDTH, LINE_HEIGHT * LINES_SPEED.length, source, 0, LINE_WIDTH);
+        setScreenWidth(screenWidth);
+    }
+
+    /**
+     * Set the screen width, building strips if not already built for this width.
+     * 
+     * @param width The screen width.
+     */
+    void setScreenWidth(int width)
+    {
+        if (screenWidth != width)
+        {
+            screenWidth = width;
+            key = Integer.valueOf(width);
+            atlas = atlases.get(key);
+            if (atlas == null)
+            {
+                atlasWidth = width + LINE_WIDTH;
+                final int[] pixels = new int[atlasWidth * LINE_HEIGHT * LINES_SPEED.length];
+                fillAtlas(pixels);
+                atlas = Graphics.createImageBuffer(atlasWidth, LINE_HEIGHT * LINES_SPEED.length);
+                atlas.setRgb(0, 0, atlasWidth, LINE_HEIGHT * LINES_SPEED.length, pixels, 0, atlasWidth);
+                atlas.prepare();
+                atlases.put(key, atlas);
+                atlasesPixels.put(key, pixels);
+            }
+            atlasPixels = atlasesPixels.get(key);
+            atlasWidth = atlas.getWidth();
+            apply();
+        }
+    }
+
+    /**
+     * Recolor lines with a palette of the source indexed image. Nothing is allocated.
+     * 
+     * @param image The source indexed image.
+     * @param colors The palette to use.
+     */
+    void recolor(IndexedImage image, Palette colors)
+    {
+        indexed = image;
+        palette[0] = colors;
+        apply();
+    }
+
+    /**
+     * Release all built atlases.
+     */
+    void dispose()
+    {
+        for (final ImageBuffer built : atlases.values())
+        {
+            built.dispose();
+        }
+        atlases.clear();
+        atlasesPixels.clear();
+        applied.clear();
+        atlas = null;
+        atlasPixels = null;
+        screenWidth = -1;
+    }
+
+    /**
+     * Apply recolor palette to the source lines and the current atlas if not already applied.
+     */
+    private void apply()
+    {
+        if (indexed != null && applied.get(key) != palette[0])
+        {
+            indexed.getRgb(0, 0, LINE_WIDTH, LINE_HEIGHT * LINES_SPEED.length, palette, source, 0, LINE_WIDTH);
+            fillAtlas(atlasPixels);
+            atlas.setRgb(0, 0, atlasWidth, LINE_HEIGHT * LINES_SPEED.length, atlasPixels, 0, atlasWidth);
+            applied.put(key, palette[0]);
+        }
+    }
+
+    /**
+     * Fill atlas pixels with the source lines repeated horizontally.
+     * 
+     * @param pixels The atlas pixels, of {@link #atlasWidth}.
+     */
+    private void fillAtlas(int[] pixels)
+    {
+        for (int y = 0; y < LINE_HEIGHT * LINES_SPEED.length; y++)
+        {
+            final int row = y * LINE_WIDTH;
+            final int line = y * atlasWidth;
+            for (int px = 0; px < atlasWidth; px += LINE_WIDTH)
+            {
+                System.arraycopy(source, row, pixels, line + px, Math.min(LINE_WIDTH, atlasWidth - px));
+            }
+        }
+    }
+
+    /**
+     * Get the strip horizontal offset of a line, so line content moves with its scroll.
+     * 
+     * @param line The line index.
+     * @return The strip horizontal offset.
+     */
+    private int getStripX(int line)
+    {
+        return (LINE_WIDTH - (int) x[line]) % LINE_WIDTH;
+    }
+
+    /**
+     * Get the line top screen location.
+     * 
+     * @param line The line index.
+     * @return The line top.
+     */
+    private int getLineY(int line)
+    {
+        return offsetY + decY + LINES_OFFSET[line];
+    }
+
+    /*
+     * BackgroundComponent
+     */
+
+    @Override
+    public void update(double extrp, int x, int y, double speed)
     {
-        super(path, LINE_WIDTH, LINE_HEIGHT, screenWidth, decY);
+        for (int i = 0; i < LINES_SPEED.length; i++)
+        {
+            this.x[i] = UtilMath.wrapDouble(this.x[i] + LINES_SPEED[i] * extrp, 0.0, LINE_WIDTH);
+        }
+        offsetY = y;
+    }
 
-        for (int i = 0; i < LINES_OFFSET.length; i++)
+    @Override
+    public void render(Graphic g)
+    {
+        for (int i = 0; i < LINES_SPEED.length; i++)
         {
-            setY(i, LINES_OFFSET[i]);
+            final int y = getLineY(i);
+            final int sx = getStripX(i);
+            final int sy = i * LINE_HEIGHT;
+            g.drawImage(atlas, 0, y, screenWidth, y + LINE_HEIGHT, sx, sy, sx + screenWidth, sy + LINE_HEIGHT);
         }
+        DrawCalls.count(LINES_SPEED.length);
+    }
+
+    /*
+     * CompositeLayer
+     */
 
+    @Override
+    public void prepare()
+    {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void composite(int[] frame, int width, int fromY, int toY)
+    {
+        final int length = Math.min(screenWidth, width);
         for (int i = 0; i < LINES_SPEED.length; i++)
         {
-            setSpeed(i, LINES_SPEED[i]);
+            final int top = getLineY(i);
+            final int sx = getStripX(i);
+            final int endY = Math.min(toY, top + LINE_HEIGHT);
+            for (int y = Math.max(fromY, top); y < endY; y++)
+            {
+                final int row = i * LINE_HEIGHT + y - top;
+                Pixels.blend(atlasPixels, row * atlasWidth + sx, frame, y * width, length);
+            }
         }
     }
 }
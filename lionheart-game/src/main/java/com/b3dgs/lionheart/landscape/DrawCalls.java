@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Landscape draw calls counter, used to check the draws issued per frame.
+ * <p>
+ * Counts the draws issued by the landscape code: strips, moon, clouds lines, parallax lines and water line copies.
+ * Draws can be counted from any thread, such as compositor bands.
+ * </p>
+ */
+public final class DrawCalls
+{
+    /** Draws of the current frame. */
+    private static final AtomicInteger CURRENT = new AtomicInteger();
+    /** Draws of the last ended frame. */
+    private static final AtomicInteger LAST = new AtomicInteger();
+
+    /**
+     * Count draws in the current frame.
+     * 
+     * @param draws The number of draws.
+     */
+    public static void count(int draws)
+    {
+        CURRENT.addAndGet(draws);
+    }
+
+    /**
+     * End the current frame.
+     */
+    public static void endFrame()
+    {
+        LAST.set(CURRENT.getAndSet(0));
+    }
+
+    /**
+     * Get the number of draws of the last ended frame.
+     * 
+     * @return The number of draws.
+     */
+    public static int getLastFrame()
+    {
+        return LAST.get();
+    }
+
+    /**
+     * Private constructor.
+     */
+    private DrawCalls()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
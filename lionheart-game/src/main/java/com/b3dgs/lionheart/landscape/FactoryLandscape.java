@@ -28,6 +28,18 @@ public final class FactoryLandscape
 {
     /** Unknown landscape error message. */
     private static final String UNKNOWN_LANDSCAPE_ERROR = "Unknown landscape: ";
+    /** Assets shared by all created landscapes. */
+    private static final AssetCache ASSETS = new AssetCache(AssetCache.DEFAULT_RETAINED);
+
+    /**
+     * Get the assets cache shared by all created landscapes.
+     * 
+     * @return The assets cache.
+     */
+    public static AssetCache getAssets()
+    {
+        return ASSETS;
+    }
 
     /** The resolution source reference. */
     private final Resolution source;
@@ -55,31 +67,48 @@ public final class FactoryLandscape
     }
 
     /**
-     * Create a landscape from its type.
+     * Create a landscape from its type. Landscape must be disposed when no more used to release its assets.
      * 
      * @param landscape The landscape type.
      * @return The landscape instance.
      */
     public Landscape createLandscape(LandscapeType landscape)
     {
+        final Scanlines scanlines = new Scanlines(source.getWidth(), source.getHeight());
+        final LandscapeAssets assets = new LandscapeAssets(ASSETS);
         switch (landscape.getWorld())
         {
             case SWAMP:
             {
-                final Background background = new Swamp(source, scaleH, scaleV, landscape.getTheme(), flicker);
+                final Background background = new Swamp(source,
+                                                        scanlines,
+                                                        assets,
+                                                        scaleH,
+                                                        scaleV,
+                                                        landscape.getTheme(),
+                                                        flicker);
                 final Foreground foreground = new Foreground(source,
+                                                             scanlines,
+                                                             assets,
                                                              scaleH,
                                                              scaleV,
                                                              landscape.getForeground().getTheme());
-                return new Landscape(landscape, background, foreground);
+                return new Landscape(landscape, background, foreground, scanlines, assets);
             }
             case ANCIENT_TOWN:
-                final Background background = new AncientTown(source, scaleH, scaleV, landscape.getTheme(), flicker);
+                final Background background = new AncientTown(source,
+                                                              assets,
+                                                              scaleH,
+                                                              scaleV,
+                                                              landscape.getTheme(),
+                                                              flicker);
                 final Foreground foreground = new Foreground(source,
+                                                             scanlines,
+                                                             assets,
                                                              scaleH,
                                                              scaleV,
                                                              landscape.getForeground().getTheme());
-                return new Landscape(landscape, background, foreground);
+                return new Landscape(landscape, background, foreground, scanlines, assets);
             default:
                 throw new LionEngineException(FactoryLandscape.UNKNOWN_LANDSCAPE_ERROR + landscape);
         }
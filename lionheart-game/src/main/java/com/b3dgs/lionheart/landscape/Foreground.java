@@ -20,7 +20,6 @@ package com.b3dgs.lionheart.landscape;
 import com.b3dgs.lionengine.Animation;
 import com.b3dgs.lionengine.Resolution;
 import com.b3dgs.lionengine.core.Medias;
-import com.b3dgs.lionengine.core.drawable.Drawable;
 import com.b3dgs.lionengine.game.background.BackgroundComponent;
 import com.b3dgs.lionengine.game.background.BackgroundElement;
 import com.b3dgs.lionengine.game.background.BackgroundGame;
@@ -70,11 +69,18 @@ class Foreground extends BackgroundGame
      * Constructor.
      * 
      * @param source The resolution source reference.
+     * @param scanlines The scanlines reference.
+     * @param assets The landscape assets.
      * @param scaleH The horizontal factor.
      * @param scaleV The vertical factor.
      * @param theme The theme name.
      */
-    Foreground(Resolution source, double scaleH, double scaleV, String theme)
+    Foreground(Resolution source,
+               Scanlines scanlines,
+               LandscapeAssets assets,
+               double scaleH,
+               double scaleV,
+               String theme)
     {
         super(theme, 0, 0);
 
@@ -82,14 +88,24 @@ class Foreground extends BackgroundGame
         this.scaleV = scaleV;
 
         final String path = UtilFolder.getPath(Landscape.DIR_FOREGROUNDS, theme);
-        primary = new Primary(path, this);
-        secondary = new Secondary(path, this);
+        primary = new Primary(path, assets, this);
+        secondary = new Secondary(path, assets, this);
+        scanlines.add(secondary);
 
         setScreenSize(source.getWidth(), source.getHeight());
         add(primary);
         add(secondary);
     }
 
+    /**
+     * Release the strips surfaces.
+     */
+    void dispose()
+    {
+        primary.dispose();
+        secondary.dispose();
+    }
+
     /**
      * Render the front part of the water.
      * 
@@ -110,6 +126,16 @@ class Foreground extends BackgroundGame
         renderComponent(1, g);
     }
 
+    /**
+     * Get the back part of the water as composite layer.
+     * 
+     * @return The water back composite layer.
+     */
+    CompositeLayer getBackLayer()
+    {
+        return primary;
+    }
+
     /**
      * Called when the resolution changed.
      * 
@@ -192,10 +218,12 @@ class Foreground extends BackgroundGame
     /**
      * First front component, including water effect.
      */
-    private final class Primary implements BackgroundComponent
+    private final class Primary implements BackgroundComponent, CompositeLayer
     {
         /** Water element. */
         private final BackgroundElement data;
+        /** Calc strip. */
+        private final SpriteStrip strip;
         /** Water reference. */
         private final Foreground water;
 
@@ -203,16 +231,16 @@ class Foreground extends BackgroundGame
          * Constructor.
          * 
          * @param path The primary surface path.
+         * @param assets The landscape assets.
          * @param water The water reference.
          */
-        Primary(String path, Foreground water)
+        Primary(String path, LandscapeAssets assets, Foreground water)
         {
             this.water = water;
 
-            final Sprite sprite = Drawable.loadSprite(Medias.create(path, "calc.png"));
-            sprite.load();
-            sprite.prepare();
+            final Sprite sprite = assets.loadSprite(Medias.create(path, "calc.png"));
             data = new BackgroundElement(0, (int) Math.ceil(water.getNominal() * scaleV), sprite);
+            strip = new SpriteStrip(sprite, screenWidth);
             top = data.getRenderable().getHeight();
         }
 
@@ -222,6 +250,15 @@ class Foreground extends BackgroundGame
         void updateMainY()
         {
             data.setMainY((int) Math.ceil(water.getNominal() * scaleV));
+            strip.setScreenWidth(screenWidth);
+        }
+
+        /**
+         * Release the strip surfaces.
+         */
+        void dispose()
+        {
+            strip.dispose();
         }
 
         /*
@@ -238,16 +275,30 @@ class Foreground extends BackgroundGame
         public void render(Graphic g)
         {
             // Render calc
-            final Sprite sprite = (Sprite) data.getRenderable();
-            final int w = (int) Math.ceil(screenWidth / (double) sprite.getWidth());
             final int y = (int) (screenHeight + getNominal() - UNKNOWN_OFFSET + data.getOffsetY() + water.getHeight());
             if (y >= 0 && y < screenHeight)
             {
-                for (int j = 0; j < w; j++)
-                {
-                    sprite.setLocation(sprite.getWidth() * j, y);
-                    sprite.render(g);
-                }
+                strip.render(g, 0, y);
+            }
+        }
+
+        /*
+         * CompositeLayer
+         */
+
+        @Override
+        public void prepare()
+        {
+            // Nothing to prepare
+        }
+
+        @Override
+        public void composite(int[] frame, int width, int fromY, int toY)
+        {
+            final int y = (int) (screenHeight + getNominal() - UNKNOWN_OFFSET + data.getOffsetY() + water.getHeight());
+            if (y >= 0 && y < screenHeight)
+            {
+                strip.composite(frame, width, fromY, toY, 0, y);
             }
         }
     }
@@ -255,7 +306,7 @@ class Foreground extends BackgroundGame
     /**
      * Second front component, including water effect.
      */
-    private final class Secondary implements BackgroundComponent
+    private final class Secondary implements BackgroundComponent, ScanlineEffect
     {
         /** Animation data. */
         private final Animation animation = new Animation(null, 1, 7, 0.25, false, true);
@@ -263,8 +314,16 @@ class Foreground extends BackgroundGame
         private final BackgroundElement data;
         /** Sprite. */
         private final SpriteAnimated anim;
+        /** Back strip. */
+        private final SpriteStrip backStrip;
+        /** Animation strip. */
+        private final SpriteStrip animStrip;
         /** Water reference. */
         private final Foreground water;
+        /** Water effect. */
+        private final WaterEffect effect = new WaterEffect(WATER_EFFECT_FREQUENCY,
+                                                           WATER_EFFECT_AMPLITUDE,
+                                                           WATER_EFFECT_OFFSET);
         /** Height value. */
         private double height;
         /** Water x. */
@@ -276,20 +335,20 @@ class Foreground extends BackgroundGame
          * Constructor.
          * 
          * @param path The secondary surface path.
+         * @param assets The landscape assets.
          * @param water The water reference.
          */
-        Secondary(String path, Foreground water)
+        Secondary(String path, LandscapeAssets assets, Foreground water)
         {
             this.water = water;
 
-            final Sprite back = Drawable.loadSprite(Medias.create(path, "back.png"));
-            back.load();
-            back.prepare();
+            final Sprite back = assets.loadSprite(Medias.create(path, "back.png"));
 
             data = new BackgroundElement(0, (int) Math.floor(water.getNominal() * scaleV), back);
-            anim = Drawable.loadSpriteAnimated(Medias.create(path, "anim.png"), animation.getLast(), 1);
-            anim.load();
+            anim = assets.loadSpriteAnimated(Medias.create(path, "anim.png"), animation.getLast(), 1);
             anim.play(animation);
+            backStrip = new SpriteStrip(back, screenWidth);
+            animStrip = new SpriteStrip(anim, animation.getLast(), screenWidth);
         }
 
         /**
@@ -298,26 +357,25 @@ class Foreground extends BackgroundGame
         void updateMainY()
         {
             data.setMainY((int) Math.floor(water.getNominal() * scaleV));
+            backStrip.setScreenWidth(screenWidth);
+            animStrip.setScreenWidth(screenWidth);
+            effect.setScreenHeight(screenHeight);
         }
 
         /**
-         * Update water effect.
-         * 
-         * @param g The graphics output.
-         * @param speed The effect speed.
-         * @param frequency The effect frequency.
-         * @param amplitude The effect amplitude.
-         * @param offsetForce The offset force.
+         * Release the strips surfaces.
          */
-        private void waterEffect(Graphic g, double speed, double frequency, double amplitude, double offsetForce)
+        void dispose()
+        {
+            backStrip.dispose();
+            animStrip.dispose();
+        }
+
+        @Override
+        public void contribute(Scanlines scanlines)
         {
             final int oy = py + (int) water.getHeight();
-            for (int y = screenHeight + getNominal() - UNKNOWN_OFFSET + oy; y < screenHeight; y++)
-            {
-                final double inside = Math.cos(UtilMath.wrapDouble(y + wx * frequency, 0.0, 360.0)) * amplitude;
-                final double outside = Math.cos(wx) * offsetForce;
-                g.copyArea(0, y, screenWidth, 1, (int) (inside + outside), 0);
-            }
+            effect.contribute(scanlines, screenHeight + getNominal() - UNKNOWN_OFFSET + oy);
         }
 
         /*
@@ -338,40 +396,25 @@ class Foreground extends BackgroundGame
             water.setHeight(Math.sin(height) * water.getDepth());
             py = y;
             wx += WATER_EFFECT_SPEED * extrp;
+            effect.update(wx);
         }
 
         @Override
         public void render(Graphic g)
         {
-            // w number of renders used to fill screen
-            final Sprite sprite = (Sprite) data.getRenderable();
-            int w = (int) Math.ceil(screenWidth / (double) sprite.getWidth());
             int y = (int) (screenHeight + getNominal() - UNKNOWN_OFFSET + data.getOffsetY() + water.getHeight());
-
             if (y >= 0 && y <= screenHeight)
             {
-                for (int j = 0; j < w; j++)
-                {
-                    sprite.setLocation(sprite.getWidth() * j, y);
-                    sprite.render(g);
-                }
+                backStrip.render(g, 0, y);
             }
 
             // animation rendering
-            w = (int) Math.ceil(screenWidth / (double) anim.getTileWidth());
             final int x = (int) (-data.getOffsetX() + data.getMainX());
-
-            y -= anim.getTileHeight();
+            y -= animStrip.getTileHeight();
             if (y >= 0 && y <= screenHeight)
             {
-                for (int j = 0; j <= w; j++)
-                {
-                    anim.setLocation(x + anim.getTileWidth() * j, y);
-                    anim.render(g);
-                }
+                animStrip.render(g, x, y);
             }
-
-            waterEffect(g, WATER_EFFECT_SPEED, WATER_EFFECT_FREQUENCY, WATER_EFFECT_AMPLITUDE, WATER_EFFECT_OFFSET);
         }
     }
 }
@@ -17,9 +17,14 @@
  */
 package com.b3dgs.lionheart.landscape;
 
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Verbose;
 import com.b3dgs.lionengine.game.Camera;
 import com.b3dgs.lionengine.game.background.Background;
 import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionheart.FrameProfiler;
+import com.b3dgs.lionheart.FrameSection;
+import com.b3dgs.lionheart.NativeFramebuffer;
 
 /**
  * Represents a landscape by containing a background and a foreground.
@@ -31,12 +36,28 @@ public class Landscape
     /** Backgrounds folder. */
     public static final String DIR_FOREGROUNDS = "foreground";
 
-    /** Landscape type. */
-    private final LandscapeType type;
+    /** World themes. */
+    private final LandscapeType[] themes;
     /** Background element. */
     private final Background background;
     /** Foreground element. */
     private final Foreground foreground;
+    /** Scanlines effects. */
+    private final Scanlines scanlines;
+    /** Landscape assets. */
+    private final LandscapeAssets assets;
+    /** Frame profiler. */
+    private FrameProfiler profiler = new FrameProfiler();
+    /** Band compositor, <code>null</code> to render background with graphic. */
+    private BandCompositor compositor;
+    /** Landscape type, source theme while fading. */
+    private LandscapeType type;
+    /** Theme faded to, <code>null</code> if no fade. */
+    private LandscapeType fadeTo;
+    /** Fade progress. */
+    private double fadeProgress;
+    /** Fade progress speed. */
+    private double fadeSpeed;
 
     /**
      * Constructor.
@@ -44,12 +65,38 @@ public class Landscape
      * @param type The landscape type.
      * @param background The background element.
      * @param foreground The foreground element.
+     * @param scanlines The scanlines effects shared by background and foreground.
+     * @param assets The assets used by background and foreground.
      */
-    public Landscape(LandscapeType type, Background background, Foreground foreground)
+    public Landscape(LandscapeType type,
+                     Background background,
+                     Foreground foreground,
+                     Scanlines scanlines,
+                     LandscapeAssets assets)
     {
         this.type = type;
+        themes = LandscapeType.getWorldLandscape(type.getWorld());
         this.background = background;
         this.foreground = foreground;
+        this.scanlines = scanlines;
+        this.assets = assets;
+    }
+
+    /**
+     * Release the landscape surfaces and its cached assets references. Landscape must not be used after.
+     */
+    public void dispose()
+    {
+        if (background instanceof Swamp)
+        {
+            ((Swamp) background).dispose();
+        }
+        else if (background instanceof AncientTown)
+        {
+            ((AncientTown) background).dispose();
+        }
+        foreground.dispose();
+        assets.dispose();
     }
 
     /**
@@ -60,8 +107,21 @@ public class Landscape
      */
     public void update(double extrp, Camera camera)
     {
+        final long start = profiler.start();
+        if (fadeTo != null)
+        {
+            fadeProgress = Math.min(1.0, fadeProgress + fadeSpeed * extrp);
+            ((Swamp) background).setTheme(getThemeIndex(type), getThemeIndex(fadeTo), fadeProgress);
+            if (fadeProgress >= 1.0)
+            {
+                type = fadeTo;
+                fadeTo = null;
+            }
+        }
         background.update(extrp, camera.getMovementHorizontal(), camera.getY());
         foreground.update(extrp, camera.getMovementHorizontal(), camera.getY());
+        scanlines.update();
+        profiler.stop(FrameSection.LANDSCAPE_UPDATE, start);
     }
 
     /**
@@ -71,18 +131,70 @@ public class Landscape
      */
     public void renderBackground(Graphic g)
     {
+        long start = profiler.start();
         background.render(g);
+        profiler.stop(FrameSection.BACKGROUND_RENDER, start);
+
+        start = profiler.start();
         foreground.renderBack(g);
+        profiler.stop(FrameSection.WATER_BACK_RENDER, start);
     }
 
     /**
-     * Render the foreground.
+     * Render the background to the framebuffer. With a compositor, background and water back layers are composited
+     * to the framebuffer pixels, else they are rendered with its graphic.
+     * 
+     * @param framebuffer The framebuffer output.
+     */
+    public void renderBackground(NativeFramebuffer framebuffer)
+    {
+        if (compositor == null)
+        {
+            renderBackground(framebuffer.getGraphic());
+        }
+        else
+        {
+            final long start = profiler.start();
+            compositor.composite(framebuffer.getPixels(), framebuffer.getWidth(), framebuffer.getHeight());
+            framebuffer.unlock();
+            profiler.stop(FrameSection.BACKGROUND_RENDER, start);
+        }
+    }
+
+    /**
+     * Render the foreground, then apply the scanlines shifts to the frame and end the frame {@link DrawCalls}.
      * 
      * @param g The graphic output.
      */
     public void renderForeground(Graphic g)
     {
+        long start = profiler.start();
         foreground.renderFront(g);
+        profiler.stop(FrameSection.WATER_FRONT_RENDER, start);
+
+        start = profiler.start();
+        scanlines.shift(g);
+        profiler.stop(FrameSection.SCANLINES_RENDER, start);
+        DrawCalls.endFrame();
+    }
+
+    /**
+     * Render the foreground to the framebuffer, then apply the scanlines shifts to its pixels and end the frame
+     * {@link DrawCalls}.
+     * 
+     * @param framebuffer The framebuffer output.
+     */
+    public void renderForeground(NativeFramebuffer framebuffer)
+    {
+        long start = profiler.start();
+        foreground.renderFront(framebuffer.getGraphic());
+        profiler.stop(FrameSection.WATER_FRONT_RENDER, start);
+
+        start = profiler.start();
+        scanlines.shift(framebuffer.lock());
+        framebuffer.unlock();
+        profiler.stop(FrameSection.SCANLINES_RENDER, start);
+        DrawCalls.endFrame();
     }
 
     /**
@@ -96,7 +208,113 @@ public class Landscape
     }
 
     /**
-     * Get the landscape type.
+     * Set the frame profiler measuring landscape sections.
+     * 
+     * @param profiler The frame profiler.
+     */
+    public void setProfiler(FrameProfiler profiler)
+    {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Switch or crossfade to another theme of the same world. Theme palettes are computed on load, so nothing is
+     * loaded nor allocated. A fade in progress is completed first. Ignored if background does not support themes.
+     * 
+     * @param theme The theme to use (must be of the same world).
+     * @param duration The fade duration in updates, <code>0</code> to switch immediately.
+     * @throws LionEngineException If theme of another world.
+     */
+    public void setTheme(LandscapeType theme, double duration)
+    {
+        if (theme.getWorld() != type.getWorld())
+        {
+            throw new LionEngineException("Theme of another world: ", theme.name());
+        }
+        if (background instanceof Swamp)
+        {
+            if (fadeTo != null)
+            {
+                ((Swamp) background).setTheme(getThemeIndex(type), getThemeIndex(fadeTo), 1.0);
+                type = fadeTo;
+            }
+            if (duration > 0.0)
+            {
+                fadeTo = theme;
+                fadeProgress = 0.0;
+                fadeSpeed = 1.0 / duration;
+            }
+            else
+            {
+                ((Swamp) background).setTheme(getThemeIndex(type), getThemeIndex(theme), 1.0);
+                type = theme;
+                fadeTo = null;
+            }
+        }
+        else
+        {
+            Verbose.warning(Landscape.class, "setTheme", "No themes switch for ", type.name());
+        }
+    }
+
+    /**
+     * Get the theme index in the world themes.
+     * 
+     * @param theme The theme.
+     * @return The theme index.
+     */
+    private int getThemeIndex(LandscapeType theme)
+    {
+        for (int i = 0; i < themes.length; i++)
+        {
+            if (themes[i] == theme)
+            {
+                return i;
+            }
+        }
+        throw new LionEngineException("Unknown theme: ", theme.name());
+    }
+
+    /**
+     * Set the compositor used by {@link #renderBackground(NativeFramebuffer)}. Its layers are replaced by this
+     * landscape ones. Ignored if background does not provide composite layers.
+     * 
+     * @param compositor The band compositor, <code>null</code> to render background with graphic.
+     */
+    public void setCompositor(BandCompositor compositor)
+    {
+        this.compositor = null;
+        if (compositor != null)
+        {
+            if (background instanceof Swamp)
+            {
+                compositor.clear();
+                for (final CompositeLayer layer : ((Swamp) background).getLayers())
+                {
+                    compositor.add(layer);
+                }
+                compositor.add(foreground.getBackLayer());
+                this.compositor = compositor;
+            }
+            else
+            {
+                Verbose.warning(Landscape.class, "setCompositor", "No composite layers for ", type.name());
+            }
+        }
+    }
+
+    /**
+     * Get the scanlines effects.
+     * 
+     * @return The scanlines effects.
+     */
+    public Scanlines getScanlines()
+    {
+        return scanlines;
+    }
+
+    /**
+     * Get the landscape type, theme faded from while fading.
      * 
      * @return The landscape type.
      */
@@ -115,5 +333,6 @@ public class Landscape
     {
         ((Swamp) background).setScreenSize(width, height);
         foreground.setScreenSize(width, height);
+        scanlines.setScreenSize(width, height);
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.drawable.Drawable;
+import com.b3dgs.lionengine.game.background.BackgroundElement;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Sprite;
+import com.b3dgs.lionengine.graphic.SpriteAnimated;
+
+/**
+ * Assets taken by one landscape from the {@link AssetCache}, all given back on {@link #dispose()}.
+ * <p>
+ * Sprites are created on the shared decoded images, so each landscape has its own sprites state.
+ * </p>
+ */
+final class LandscapeAssets
+{
+    /** Assets cache. */
+    private final AssetCache cache;
+    /** Taken assets. */
+    private final List<Object> taken = new ArrayList<Object>();
+
+    /**
+     * Create assets.
+     * 
+     * @param cache The assets cache.
+     */
+    LandscapeAssets(AssetCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Get a shared image.
+     * 
+     * @param media The image media.
+     * @return The shared image.
+     */
+    ImageBuffer getImage(Media media)
+    {
+        final ImageBuffer image = cache.getImage(media);
+        taken.add(image);
+        return image;
+    }
+
+    /**
+     * Create a sprite on a shared image.
+     * 
+     * @param media The image media.
+     * @return The loaded sprite.
+     */
+    Sprite loadSprite(Media media)
+    {
+        return Drawable.loadSprite(getImage(media));
+    }
+
+    /**
+     * Create an animated sprite on a shared image.
+     * 
+     * @param media The image media.
+     * @param horizontalFrames The number of horizontal frames.
+     * @param verticalFrames The number of vertical frames.
+     * @return The loaded animated sprite.
+     */
+    SpriteAnimated loadSpriteAnimated(Media media, int horizontalFrames, int verticalFrames)
+    {
+        return Drawable.loadSpriteAnimated(getImage(media), horizontalFrames, verticalFrames);
+    }
+
+    /**
+     * Create sprites on shared raster images.
+     * 
+     * @param media The image media.
+     * @param rasterFile The raster definition.
+     * @param count The number of rasters.
+     * @return The loaded raster sprites.
+     */
+    Sprite[] loadRasters(Media media, Media rasterFile, int count)
+    {
+        final ImageBuffer[] rasters = cache.getRasters(media, rasterFile, count);
+        taken.add(rasters);
+        final Sprite[] sprites = new Sprite[count];
+        for (int i = 0; i < count; i++)
+        {
+            sprites[i] = Drawable.loadSprite(rasters[i]);
+        }
+        return sprites;
+    }
+
+    /**
+     * Create a background element on a shared image.
+     * 
+     * @param path The image folder.
+     * @param file The image file.
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     * @return The background element.
+     */
+    BackgroundElement createElement(String path, String file, int x, int y)
+    {
+        return new BackgroundElement(x, y, loadSprite(Medias.create(path, file)));
+    }
+
+    /**
+     * Give back all taken assets to cache.
+     */
+    void dispose()
+    {
+        for (final Object asset : taken)
+        {
+            cache.release(asset);
+        }
+        taken.clear();
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.game.background.BackgroundComponent;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.util.UtilMath;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Palette;
+
+/**
+ * Parallax lines, each source line being horizontally scaled from a start to an end percent to give perspective, and
+ * scrolled at a speed proportional to its scale.
+ * <p>
+ * Scaled lines are pre-tiled once per screen width in a single atlas, one row per line, kept for later use of the
+ * same width. Lines scroll is kept in a fixed point offsets table, moved incrementally by the horizontal movement
+ * and contributed to the {@link Scanlines}.
+ * </p>
+ * <p>
+ * In single pass mode (default), each line atlas row is copied at its offset to a screen wide pass buffer, drawn with
+ * a single blit. Else each line is rendered with one clipped blit of its atlas row.
+ * </p>
+ * <p>
+ * Lines can be recolored in place with a palette of the source {@link IndexedImage}. Recoloring is applied to the
+ * current atlas, other atlases are recolored when selected again.
+ * </p>
+ */
+public final class ParallaxLines implements BackgroundComponent, ScanlineEffect, CompositeLayer
+{
+    /** Percent factor. */
+    private static final double PERCENT = 100.0;
+    /** Fixed point fraction bits. */
+    private static final int FIXED_SHIFT = 16;
+    /** Fixed point one. */
+    private static final double FIXED_ONE = 1 << FIXED_SHIFT;
+
+    /** Scanlines reference. */
+    private final Scanlines scanlines;
+    /** Source lines pixels, one row per line. */
+    private final int[] source;
+    /** Source width. */
+    private final int sourceWidth;
+    /** Number of lines. */
+    private final int lines;
+    /** Scaled width by line. */
+    private final int[] lineWidth;
+    /** Speed factor by line. */
+    private final double[] factor;
+    /** Fixed point speed factor by line. */
+    private final int[] step;
+    /** Fixed point scaled width by line. */
+    private final int[] wrap;
+    /** Fixed point scroll by line. */
+    private final int[] offset;
+    /** Vertical location of the first line. */
+    private final int decY;
+    /** Lines atlas by screen width. */
+    private final Map<Integer, ImageBuffer> atlases = new HashMap<Integer, ImageBuffer>();
+    /** Lines atlas pixels by screen width. */
+    private final Map<Integer, int[]> atlasesPixels = new HashMap<Integer, int[]>();
+    /** Single pass buffer by screen width. */
+    private final Map<Integer, ImageBuffer> passes = new HashMap<Integer, ImageBuffer>();
+    /** Single pass buffer pixels by screen width. */
+    private final Map<Integer, int[]> passesPixels = new HashMap<Integer, int[]>();
+    /** Palette applied, by screen width. */
+    private final Map<Integer, Palette> applied = new HashMap<Integer, Palette>();
+    /** Recolor palette as line palettes, empty if not recolored. */
+    private final Palette[] palette = new Palette[1];
+    /** Recolor source, <code>null</code> if not recolored. */
+    private IndexedImage indexed;
+    /** Screen width key. */
+    private Integer key;
+    /** Lines atlas, <code>null</code> if not built. */
+    private ImageBuffer atlas;
+    /** Lines atlas pixels. */
+    private int[] atlasPixels;
+    /** Lines atlas width. */
+    private int atlasWidth;
+    /** Single pass buffer, <code>null</code> if not built. */
+    private ImageBuffer pass;
+    /** Single pass buffer pixels. */
+    private int[] passPixels;
+    /** Single pass flag. */
+    private boolean singlePass = true;
+    /** Screen width. */
+    private int screenWidth = -1;
+    /** Vertical offset. */
+    private int offsetY;
+
+    /**
+     * Create parallax.
+     * 
+     * @param scanlines The scanlines reference.
+     * @param image The parallax image, one pixel row per line (not owned).
+     * @param lines The number of lines.
+     * @param decX The horizontal start offset.
+     * @param decY The vertical location of the first line.
+     * @param startPercent The first line scale in percent.
+     * @param endPercent The last line scale in percent.
+     * @param screenWidth The screen width.
+     */
+    public ParallaxLines(Scanlines scanlines,
+                         ImageBuffer image,
+                         int lines,
+                         int decX,
+                         int decY,
+                         int startPercent,
+                         int endPercent,
+                         int screenWidth)
+    {
+        this.scanlines = scanlines;
+        this.lines = lines;
+        this.decY = decY;
+
+        sourceWidth = image.getWidth();
+        source = new int[sourceWidth * lines];
+        image.getRgb(0, 0, sourceWidth, lines, source, 0, sourceWidth);
+
+        lineWidth = new int[lines];
+        factor = new double[lines];
+        step = new int[lines];
+        wrap = new int[lines];
+        offset = new int[lines];
+        for (int i = 0; i < lines; i++)
+        {
+            final double progress = lines > 1 ? i / (double) (lines - 1) : 1.0;
+            factor[i] = (startPercent + (endPercent - startPercent) * progress) / PERCENT;
+            lineWidth[i] = Math.max(1, (int) Math.round(sourceWidth * factor[i]));
+            step[i] = (int) Math.round(factor[i] * FIXED_ONE);
+            wrap[i] = lineWidth[i] << FIXED_SHIFT;
+            offset[i] = (int) (UtilMath.wrapDouble(decX * factor[i], 0.0, lineWidth[i]) * FIXED_ONE);
+        }
+        scanlines.add(this);
+        setScreenWidth(screenWidth);
+    }
+
+    /**
+     * Set the screen width, building atlas and pass buffer if not already built for this width.
+     * 
+     * @param width The screen width.
+     */
+    public void setScreenWidth(int width)
+    {
+        if (screenWidth != width)
+        {
+            screenWidth = width;
+            key = Integer.valueOf(width);
+            atlas = atlases.get(key);
+            if (atlas == null)
+            {
+                atlas = createAtlas(width);
+                atlases.put(key, atlas);
+                atlasesPixels.put(key, Pixels.read(atlas));
+            }
+            atlasPixels = atlasesPixels.get(key);
+            atlasWidth = atlas.getWidth();
+            pass = passes.get(key);
+            if (pass == null)
+            {
+                pass = Graphics.createImageBuffer(width, lines);
+                passes.put(key, pass);
+                passesPixels.put(key, new int[width * lines]);
+            }
+            passPixels = passesPixels.get(key);
+            apply();
+        }
+    }
+
+    /**
+     * Recolor lines with a palette of the source indexed image. Nothing is allocated.
+     * 
+     * @param image The source indexed image.
+     * @param colors The palette to use.
+     */
+    void recolor(IndexedImage image, Palette colors)
+    {
+        indexed = image;
+        palette[0] = colors;
+        apply();
+    }
+
+    /**
+     * Apply recolor palette to the source lines and the current atlas if not already applied.
+     */
+    private void apply()
+    {
+        if (indexed != null && applied.get(key) != palette[0])
+        {
+            indexed.getRgb(0, 0, sourceWidth, lines, palette, source, 0, sourceWidth);
+            fillAtlas(atlasPixels, atlasWidth);
+            atlas.setRgb(0, 0, atlasWidth, lines, atlasPixels, 0, atlasWidth);
+            applied.put(key, palette[0]);
+        }
+    }
+
+    /**
+     * Enable or disable single pass rendering.
+     * 
+     * @param enabled <code>true</code> to render all lines with a single blit, <code>false</code> to render each line.
+     */
+    public void setSinglePass(boolean enabled)
+    {
+        singlePass = enabled;
+    }
+
+    /**
+     * Release all built atlases and pass buffers.
+     */
+    public void dispose()
+    {
+        for (final ImageBuffer built : atlases.values())
+        {
+            built.dispose();
+        }
+        for (final ImageBuffer built : passes.values())
+        {
+            built.dispose();
+        }
+        atlases.clear();
+        atlasesPixels.clear();
+        passes.clear();
+        passesPixels.clear();
+        pass = null;
+        passPixels = null;
+        applied.clear();
+        atlas = null;
+        screenWidth = -1;
+    }
+
+    /**
+     * Create the lines atlas covering the screen width plus the widest line.
+     * 
+     * @param width The screen width.
+     * @return The created atlas.
+     */
+    private ImageBuffer createAtlas(int width)
+    {
+        int max = 0;
+        for (int i = 0; i < lines; i++)
+        {
+            max = Math.max(max, lineWidth[i]);
+        }
+        final int atlasWidth = width + max;
+        final int[] pixels = new int[atlasWidth * lines];
+        fillAtlas(pixels, atlasWidth);
+        final ImageBuffer created = Graphics.createImageBuffer(atlasWidth, lines);
+        created.setRgb(0, 0, atlasWidth, lines, pixels, 0, atlasWidth);
+        created.prepare();
+        return created;
+    }
+
+    /**
+     * Fill atlas pixels with the scaled source lines.
+     * 
+     * @param pixels The atlas pixels.
+     * @param atlasWidth The atlas width.
+     */
+    private void fillAtlas(int[] pixels, int atlasWidth)
+    {
+        for (int i = 0; i < lines; i++)
+        {
+            final int row = i * sourceWidth;
+            final int line = i * atlasWidth;
+            for (int px = 0; px < atlasWidth; px++)
+            {
+                // Nearest source pixel of the scaled line
+                final int sx = (int) (px % lineWidth[i] / factor[i]);
+                pixels[line + px] = source[row + Math.min(sx, sourceWidth - 1)];
+            }
+        }
+    }
+
+    @Override
+    public void update(double extrp, int x, int y, double speed)
+    {
+        final long move = Math.round(speed * extrp * FIXED_ONE);
+        for (int i = 0; i < lines; i++)
+        {
+            int value = offset[i] + (int) (move * step[i] >> FIXED_SHIFT);
+            if (value < 0 || value >= wrap[i])
+            {
+                value %= wrap[i];
+                if (value < 0)
+                {
+                    value += wrap[i];
+                }
+            }
+            offset[i] = value;
+        }
+        offsetY = y;
+    }
+
+    @Override
+    public void contribute(Scanlines scanlines)
+    {
+        for (int i = 0; i < lines; i++)
+        {
+            scanlines.setScroll(offsetY + decY + i, offset[i] >> FIXED_SHIFT);
+        }
+    }
+
+    @Override
+    public void render(Graphic g)
+    {
+        if (singlePass)
+        {
+            renderPass(g);
+        }
+        else
+        {
+            renderLines(g);
+        }
+    }
+
+    /**
+     * Render all lines with a single blit of the pass buffer.
+     * 
+     * @param g The graphic output.
+     */
+    private void renderPass(Graphic g)
+    {
+        for (int i = 0; i < lines; i++)
+        {
+            System.arraycopy(atlasPixels,
+                             i * atlasWidth + (offset[i] >> FIXED_SHIFT),
+                             passPixels,
+                             i * screenWidth,
+                             screenWidth);
+        }
+        pass.setRgb(0, 0, screenWidth, lines, passPixels, 0, screenWidth);
+        g.drawImage(pass, 0, offsetY + decY);
+        DrawCalls.count(1);
+    }
+
+    /**
+     * Render each line with a clipped blit of its atlas row.
+     * 
+     * @param g The graphic output.
+     */
+    private void renderLines(Graphic g)
+    {
+        int draws = 0;
+        for (int i = 0; i < lines; i++)
+        {
+            final int y = offsetY + decY + i;
+            if (scanlines.isInside(y))
+            {
+                final int sx = scanlines.getScroll(y);
+                g.drawImage(atlas, 0, y, screenWidth, y + 1, sx, i, sx + screenWidth, i + 1);
+                draws++;
+            }
+        }
+        DrawCalls.count(draws);
+    }
+
+    @Override
+    public void prepare()
+    {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void composite(int[] frame, int width, int fromY, int toY)
+    {
+        final int length = Math.min(screenWidth, width);
+        for (int i = 0; i < lines; i++)
+        {
+            final int y = offsetY + decY + i;
+            if (y >= fromY && y < toY && scanlines.isInside(y))
+            {
+                Pixels.blend(atlasPixels, i * atlasWidth + (offset[i] >> FIXED_SHIFT), frame, y * width, length);
+            }
+        }
+    }
+}
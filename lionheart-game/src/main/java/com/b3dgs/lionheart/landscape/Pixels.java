@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+
+/**
+ * Pixels utility, blending ARGB pixels into a frame.
+ */
+final class Pixels
+{
+    /** Alpha shift. */
+    private static final int ALPHA_SHIFT = 24;
+    /** Opaque alpha. */
+    private static final int OPAQUE = 0xFF;
+    /** Red and blue mask. */
+    private static final int MASK_RB = 0x00FF00FF;
+    /** Green mask. */
+    private static final int MASK_G = 0x0000FF00;
+    /** Opaque alpha mask. */
+    private static final int MASK_OPAQUE = 0xFF000000;
+    /** Blend shift. */
+    private static final int BLEND_SHIFT = 8;
+
+    /**
+     * Read all image pixels.
+     * 
+     * @param image The image to read.
+     * @return The image pixels, one row after the other.
+     */
+    static int[] read(ImageBuffer image)
+    {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] pixels = new int[width * height];
+        image.getRgb(0, 0, width, height, pixels, 0, width);
+        return pixels;
+    }
+
+    /**
+     * Blend a source image at location, only on frame rows inside band.
+     * 
+     * @param source The source pixels.
+     * @param sourceWidth The source width.
+     * @param sourceHeight The source height.
+     * @param frame The frame pixels.
+     * @param width The frame width.
+     * @param x The source horizontal location on frame.
+     * @param y The source vertical location on frame.
+     * @param fromY The first band row (inclusive).
+     * @param toY The last band row (exclusive).
+     */
+    static void blit(int[] source,
+                     int sourceWidth,
+                     int sourceHeight,
+                     int[] frame,
+                     int width,
+                     int x,
+                     int y,
+                     int fromY,
+                     int toY)
+    {
+        final int startX = Math.max(0, x);
+        final int length = Math.min(width, x + sourceWidth) - startX;
+        if (length > 0)
+        {
+            final int endY = Math.min(toY, y + sourceHeight);
+            for (int py = Math.max(fromY, y); py < endY; py++)
+            {
+                blend(source, (py - y) * sourceWidth + startX - x, frame, py * width + startX, length);
+            }
+        }
+    }
+
+    /**
+     * Blend source pixels over destination pixels.
+     * 
+     * @param source The source pixels.
+     * @param sourceOffset The first source pixel.
+     * @param destination The destination pixels.
+     * @param destinationOffset The first destination pixel.
+     * @param length The number of pixels.
+     */
+    static void blend(int[] source, int sourceOffset, int[] destination, int destinationOffset, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            final int color = source[sourceOffset + i];
+            final int alpha = color >>> ALPHA_SHIFT;
+            if (alpha == OPAQUE)
+            {
+                destination[destinationOffset + i] = color;
+            }
+            else if (alpha > 0)
+            {
+                final int back = destination[destinationOffset + i];
+                final int inverse = OPAQUE - alpha;
+                final int rb = (color & MASK_RB) * alpha + (back & MASK_RB) * inverse >>> BLEND_SHIFT & MASK_RB;
+                final int g = (color & MASK_G) * alpha + (back & MASK_G) * inverse >>> BLEND_SHIFT & MASK_G;
+                destination[destinationOffset + i] = MASK_OPAQUE | rb | g;
+            }
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private Pixels()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.b3dgs.lionengine.graphic.Graphic;
+
+/**
+ * Scanline effects stage, storing per screen line data in shared primitive arrays:
+ * <ul>
+ * <li>scroll: horizontal source position of line layers, such as parallax lines,</li>
+ * <li>raster: raster index, such as the moon raster,</li>
+ * <li>shift: horizontal shift applied to the rendered screen line, such as water distortion.</li>
+ * </ul>
+ * All registered {@link ScanlineEffect} contribute once per update, layers read their lines data on render, and all
+ * shifts are applied in a single pass once the frame is rendered. Time spent in both passes is measured.
+ */
+public final class Scanlines
+{
+    /** No raster index. */
+    public static final int NO_RASTER = -1;
+
+    /** Registered effects. */
+    private final Collection<ScanlineEffect> effects = new ArrayList<ScanlineEffect>();
+    /** Scroll by line. */
+    private int[] scroll = new int[0];
+    /** Raster index by line. */
+    private int[] raster = new int[0];
+    /** Shift by line. */
+    private int[] shift = new int[0];
+    /** Screen width. */
+    private int width;
+    /** Last contribution time in nano seconds. */
+    private long contributeTime;
+    /** Last shift pass time in nano seconds. */
+    private long shiftTime;
+    /** Last shift pass copies. */
+    private int shiftCopies;
+
+    /**
+     * Create scanlines.
+     * 
+     * @param width The screen width.
+     * @param height The screen height.
+     */
+    public Scanlines(int width, int height)
+    {
+        setScreenSize(width, height);
+    }
+
+    /**
+     * Register an effect.
+     * 
+     * @param effect The effect to register.
+     */
+    public void add(ScanlineEffect effect)
+    {
+        effects.add(effect);
+    }
+
+    /**
+     * Set the screen size, lines count of the arrays.
+     * 
+     * @param width The screen width.
+     * @param height The screen height.
+     */
+    public void setScreenSize(int width, int height)
+    {
+        this.width = width;
+        if (scroll.length != height)
+        {
+            scroll = new int[height];
+            raster = new int[height];
+            shift = new int[height];
+            clear();
+        }
+    }
+
+    /**
+     * Clear lines data and let all effects contribute.
+     */
+    public void update()
+    {
+        final long start = System.nanoTime();
+        clear();
+        for (final ScanlineEffect effect : effects)
+        {
+            effect.contribute(this);
+        }
+        contributeTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Clear lines data.
+     */
+    public void clear()
+    {
+        Arrays.fill(scroll, 0);
+        Arrays.fill(raster, NO_RASTER);
+        Arrays.fill(shift, 0);
+    }
+
+    /**
+     * Check if line is on screen.
+     * 
+     * @param y The screen line.
+     * @return <code>true</code> if on screen, <code>false</code> else.
+     */
+    public boolean isInside(int y)
+    {
+        return y >= 0 && y < shift.length;
+    }
+
+    /**
+     * Set the line scroll. Ignored if line is outside screen.
+     * 
+     * @param y The screen line.
+     * @param value The scroll value.
+     */
+    public void setScroll(int y, int value)
+    {
+        if (isInside(y))
+        {
+            scroll[y] = value;
+        }
+    }
+
+    /**
+     * Set the line raster index. Ignored if line is outside screen.
+     * 
+     * @param y The screen line.
+     * @param index The raster index.
+     */
+    public void setRaster(int y, int index)
+    {
+        if (isInside(y))
+        {
+            raster[y] = index;
+        }
+    }
+
+    /**
+     * Add to the line shift. Ignored if line is outside screen.
+     * 
+     * @param y The screen line.
+     * @param value The shift to add.
+     */
+    public void addShift(int y, int value)
+    {
+        if (isInside(y))
+        {
+            shift[y] += value;
+        }
+    }
+
+    /**
+     * Get the line scroll.
+     * 
+     * @param y The screen line (must be inside screen).
+     * @return The scroll value.
+     */
+    public int getScroll(int y)
+    {
+        return scroll[y];
+    }
+
+    /**
+     * Get the line raster index.
+     * 
+     * @param y The screen line (must be inside screen).
+     * @return The raster index, {@link #NO_RASTER} if none.
+     */
+    public int getRaster(int y)
+    {
+        return raster[y];
+    }
+
+    /**
+     * Get the line shift.
+     * 
+     * @param y The screen line (must be inside screen).
+     * @return The shift value.
+     */
+    public int getShift(int y)
+    {
+        return shift[y];
+    }
+
+    /**
+     * Apply all line shifts in one pass. Consecutive lines sharing the same shift are shifted with a single area copy,
+     * and lines without shift are skipped.
+     * 
+     * @param g The graphic output.
+     */
+    public void shift(Graphic g)
+    {
+        final long start = System.nanoTime();
+        int copies = 0;
+        int y = 0;
+        while (y < shift.length)
+        {
+            final int value = shift[y];
+            int end = y + 1;
+            while (end < shift.length && shift[end] == value)
+            {
+                end++;
+            }
+            if (value != 0)
+            {
+                g.copyArea(0, y, width, end - y, value, 0);
+                copies++;
+            }
+            y = end;
+        }
+        DrawCalls.count(copies);
+        shiftCopies = copies;
+        shiftTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Apply all line shifts in one pass to a pixel buffer of the screen size.
+     * 
+     * @param pixels The pixel buffer, one int per pixel.
+     */
+    public void shift(int[] pixels)
+    {
+        final long start = System.nanoTime();
+        final int height = Math.min(shift.length, pixels.length / width);
+        for (int y = 0; y < height; y++)
+        {
+            final int value = shift[y];
+            final int line = y * width;
+            if (value > 0 && value < width)
+            {
+                System.arraycopy(pixels, line, pixels, line + value, width - value);
+            }
+            else if (value < 0 && -value < width)
+            {
+                System.arraycopy(pixels, line - value, pixels, line, width + value);
+            }
+        }
+        shiftCopies = 0;
+        shiftTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Get the last contribution pass time.
+     * 
+     * @return The time in nano seconds.
+     */
+    public long getContributeTime()
+    {
+        return contributeTime;
+    }
+
+    /**
+     * Get the last shift pass time.
+     * 
+     * @return The time in nano seconds.
+     */
+    public long getShiftTime()
+    {
+        return shiftTime;
+    }
+
+    /**
+     * Get the last shift pass area copies.
+     * 
+     * @return The area copies.
+     */
+    public int getShiftCopies()
+    {
+        return shiftCopies;
+    }
+}
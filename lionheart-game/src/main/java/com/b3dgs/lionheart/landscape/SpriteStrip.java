@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Sprite;
+import com.b3dgs.lionengine.graphic.SpriteAnimated;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Palette;
+
+/**
+ * Sprite repeated horizontally to cover the screen width, composited once in an offscreen surface so it is rendered
+ * with a single draw. Surfaces are built once per screen width and kept, so going back to a previous width, such as a
+ * zoom level, does not build them again.
+ * <p>
+ * A scrolling strip covers one more tile than the screen width, so it can be rendered at any offset inside a tile. An
+ * animated strip keeps one surface per frame and renders the current frame of its sprite.
+ * </p>
+ * <p>
+ * Strips pixels are also kept, so they can be composited to a pixel frame by a {@link CompositeLayer}, and
+ * recolored in place with a palette of the sprite {@link IndexedImage}. Recoloring is applied to the current width,
+ * other widths are recolored when selected again.
+ * </p>
+ */
+final class SpriteStrip
+{
+    /** Repeated sprite. */
+    private final Sprite sprite;
+    /** Repeated animated sprite, <code>null</code> if not animated. */
+    private final SpriteAnimated anim;
+    /** Composited strips by frame, by covered width. */
+    private final Map<Integer, ImageBuffer[]> cache = new HashMap<Integer, ImageBuffer[]>();
+    /** Strips pixels by frame, by covered width. */
+    private final Map<Integer, int[][]> pixelsCache = new HashMap<Integer, int[][]>();
+    /** Palette applied, by covered width. */
+    private final Map<Integer, Palette> applied = new HashMap<Integer, Palette>();
+    /** Recolor palette as line palettes, empty if not recolored. */
+    private final Palette[] lines = new Palette[1];
+    /** Number of frames. */
+    private final int frames;
+    /** Tile width. */
+    private final int tileWidth;
+    /** Tile height. */
+    private final int tileHeight;
+    /** Scrolling flag. */
+    private final boolean scrolling;
+    /** Composited strips of the current width, by frame. */
+    private ImageBuffer[] strips;
+    /** Strips pixels of the current width, by frame. */
+    private int[][] pixels;
+    /** Covered width, negative if not built. */
+    private int width = -1;
+    /** Covered width key. */
+    private Integer key;
+    /** Recolor source, <code>null</code> if not recolored. */
+    private IndexedImage source;
+
+    /**
+     * Create a static strip.
+     * 
+     * @param sprite The sprite to repeat, loaded.
+     * @param width The width to cover.
+     */
+    SpriteStrip(Sprite sprite, int width)
+    {
+        this(sprite, width, false);
+    }
+
+    /**
+     * Create a strip.
+     * 
+     * @param sprite The sprite to repeat, loaded.
+     * @param width The width to cover.
+     * @param scrolling <code>true</code> to cover one more tile for horizontal scrolling, <code>false</code> else.
+     */
+    SpriteStrip(Sprite sprite, int width, boolean scrolling)
+    {
+        this.sprite = sprite;
+        anim = null;
+        frames = 1;
+        tileWidth = sprite.getWidth();
+        tileHeight = sprite.getHeight();
+        this.scrolling = scrolling;
+        setScreenWidth(width);
+    }
+
+    /**
+     * Create an animated scrolling strip.
+     * 
+     * @param anim The animated sprite to repeat, loaded.
+     * @param frames The number of frames.
+     * @param width The width to cover.
+     */
+    SpriteStrip(SpriteAnimated anim, int frames, int width)
+    {
+        sprite = anim;
+        this.anim = anim;
+        this.frames = frames;
+        tileWidth = anim.getTileWidth();
+        tileHeight = anim.getTileHeight();
+        scrolling = true;
+        setScreenWidth(width);
+    }
+
+    /**
+     * Set the width to cover, building strip if not already built for this width.
+     * 
+     * @param width The width to cover.
+     */
+    void setScreenWidth(int width)
+    {
+        if (this.width != width)
+        {
+            this.width = width;
+            key = Integer.valueOf(width);
+            strips = cache.get(key);
+            if (strips == null)
+            {
+                strips = buildFrames(width);
+                cache.put(key, strips);
+                pixels = new int[strips.length][];
+                for (int frame = 0; frame < strips.length; frame++)
+                {
+                    pixels[frame] = Pixels.read(strips[frame]);
+                }
+                pixelsCache.put(key, pixels);
+            }
+            else
+            {
+                pixels = pixelsCache.get(key);
+            }
+            apply();
+        }
+    }
+
+    /**
+     * Recolor strips with a palette of the sprite indexed image. Nothing is allocated.
+     * 
+     * @param source The sprite indexed image, frames laid horizontally.
+     * @param palette The palette to use.
+     */
+    void recolor(IndexedImage source, Palette palette)
+    {
+        this.source = source;
+        lines[0] = palette;
+        apply();
+    }
+
+    /**
+     * Apply recolor palette to the current width strips if not already applied.
+     */
+    private void apply()
+    {
+        if (source != null && applied.get(key) != lines[0])
+        {
+            for (int frame = 0; frame < strips.length; frame++)
+            {
+                final int stripWidth = strips[frame].getWidth();
+                for (int x = 0; x < stripWidth; x += tileWidth)
+                {
+                    source.getRgb(frame * tileWidth, 0, tileWidth, tileHeight, lines, pixels[frame], x, stripWidth);
+                }
+                strips[frame].setRgb(0, 0, stripWidth, tileHeight, pixels[frame], 0, stripWidth);
+            }
+            applied.put(key, lines[0]);
+        }
+    }
+
+    /**
+     * Build strips covering width, one per frame.
+     * 
+     * @param width The width to cover.
+     * @return The strips by frame.
+     */
+    private ImageBuffer[] buildFrames(int width)
+    {
+        final ImageBuffer[] built = new ImageBuffer[frames];
+        int count = (int) Math.ceil(width / (double) tileWidth);
+        if (scrolling)
+        {
+            count++;
+        }
+        count = Math.max(1, count);
+        if (anim == null)
+        {
+            built[0] = buildStrip(count);
+        }
+        else
+        {
+            final int current = anim.getFrame();
+            for (int frame = 0; frame < frames; frame++)
+            {
+                anim.setFrame(frame + 1);
+                built[frame] = buildStrip(count);
+            }
+            anim.setFrame(current);
+        }
+        return built;
+    }
+
+    /**
+     * Render strip, with the current frame if animated.
+     * 
+     * @param g The graphic output.
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     */
+    void render(Graphic g, int x, int y)
+    {
+        final ImageBuffer strip;
+        if (anim == null)
+        {
+            strip = strips[0];
+        }
+        else
+        {
+            strip = strips[anim.getFrame() - 1];
+        }
+        g.drawImage(strip, x, y);
+        DrawCalls.count(1);
+    }
+
+    /**
+     * Composite strip to frame rows inside band, with the current frame if animated.
+     * 
+     * @param frame The frame pixels.
+     * @param width The frame width.
+     * @param fromY The first band row (inclusive).
+     * @param toY The last band row (exclusive).
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     */
+    void composite(int[] frame, int width, int fromY, int toY, int x, int y)
+    {
+        final int index;
+        if (anim == null)
+        {
+            index = 0;
+        }
+        else
+        {
+            index = anim.getFrame() - 1;
+        }
+        Pixels.blit(pixels[index], strips[index].getWidth(), tileHeight, frame, width, x, y, fromY, toY);
+    }
+
+    /**
+     * Get the tile width.
+     * 
+     * @return The tile width.
+     */
+    int getTileWidth()
+    {
+        return tileWidth;
+    }
+
+    /**
+     * Get the tile height.
+     * 
+     * @return The tile height.
+     */
+    int getTileHeight()
+    {
+        return tileHeight;
+    }
+
+    /**
+     * Release all strips surfaces.
+     */
+    void dispose()
+    {
+        for (final ImageBuffer[] built : cache.values())
+        {
+            for (final ImageBuffer strip : built)
+            {
+                strip.dispose();
+            }
+        }
+        cache.clear();
+        pixelsCache.clear();
+        applied.clear();
+        strips = null;
+        pixels = null;
+        width = -1;
+    }
+
+    /**
+     * Build strip with the sprite current frame.
+     * 
+     * @param count The number of tiles.
+     * @return The strip surface.
+     */
+    private ImageBuffer buildStrip(int count)
+    {
+        final ImageBuffer strip = Graphics.createImageBuffer(count * tileWidth, tileHeight);
+        final Graphic g = strip.createGraphic();
+        for (int i = 0; i < count; i++)
+        {
+            sprite.setLocation(i * tileWidth, 0);
+            sprite.render(g);
+        }
+        g.dispose();
+        strip.prepare();
+        return strip;
+    }
+}
@@ -17,13 +17,14 @@
  */
 package com.b3dgs.lionheart.landscape;
 
+import java.util.Arrays;
+import java.util.List;
+
 import com.b3dgs.lionengine.Resolution;
 import com.b3dgs.lionengine.core.Medias;
 import com.b3dgs.lionengine.game.background.BackgroundComponent;
 import com.b3dgs.lionengine.game.background.BackgroundElement;
-import com.b3dgs.lionengine.game.background.BackgroundElementRastered;
 import com.b3dgs.lionengine.game.background.BackgroundGame;
-import com.b3dgs.lionengine.game.background.Parallax;
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.Sprite;
 import com.b3dgs.lionengine.util.UtilFolder;
@@ -43,7 +44,15 @@ class Swamp extends BackgroundGame
     /** Clouds. */
     private final Clouds clouds;
     /** Parallax. */
-    private final Parallax parallax;
+    private final ParallaxLines parallax;
+    /** Landscape assets. */
+    private final LandscapeAssets assets;
+    /** World themes. */
+    private final LandscapeType[] themes = LandscapeType.getWorldLandscape(WorldType.SWAMP);
+    /** Clouds theme palettes, <code>null</code> if themes not indexed. */
+    private final ThemePalettes cloudsThemes;
+    /** Parallax theme palettes, <code>null</code> if themes not indexed. */
+    private final ThemePalettes parallaxThemes;
     /** Number of parallax lines. */
     private final int parallaxsNumber = 96;
     /** The horizontal factor. */
@@ -55,14 +64,23 @@ class Swamp extends BackgroundGame
      * Constructor.
      * 
      * @param source The resolution source reference.
+     * @param scanlines The scanlines reference.
+     * @param assets The landscape assets.
      * @param scaleH The horizontal factor.
      * @param scaleV The horizontal factor.
      * @param theme The theme name.
      * @param flickering The flickering flag.
      */
-    Swamp(Resolution source, double scaleH, double scaleV, String theme, boolean flickering)
+    Swamp(Resolution source,
+          Scanlines scanlines,
+          LandscapeAssets assets,
+          double scaleH,
+          double scaleV,
+          String theme,
+          boolean flickering)
     {
         super(theme, 0, 512);
+        this.assets = assets;
         this.scaleH = scaleH;
         this.scaleV = scaleV;
         totalHeight = 112;
@@ -72,14 +90,64 @@ class Swamp extends BackgroundGame
         setOffsetY(Constant.NATIVE.getHeight() - 180);
 
         final String path = UtilFolder.getPath(Landscape.DIR_BACKGROUNDS, WorldType.SWAMP.getFolder(), theme);
-        backdrop = new Backdrop(path, flickering, width);
-        clouds = new Clouds(Medias.create(path, "cloud.png"), width, 4);
-        parallax = new Parallax(source, Medias.create(path, "parallax.png"), parallaxsNumber, halfScreen, 124, 50, 100);
+        backdrop = new Backdrop(path, scanlines, flickering, width);
+        clouds = new Clouds(assets.getImage(Medias.create(path, "cloud.png")), width, 4);
+        parallax = new ParallaxLines(scanlines,
+                                     assets.getImage(Medias.create(path, "parallax.png")),
+                                     parallaxsNumber,
+                                     halfScreen,
+                                     124,
+                                     50,
+                                     100,
+                                     width);
+        cloudsThemes = ThemePalettes.load(WorldType.SWAMP, themes, "cloud.png");
+        parallaxThemes = ThemePalettes.load(WorldType.SWAMP, themes, "parallax.png");
         add(backdrop);
         add(clouds);
         add(parallax);
     }
 
+    /**
+     * Get the composite layers, in rendering order.
+     * 
+     * @return The composite layers.
+     */
+    List<CompositeLayer> getLayers()
+    {
+        return Arrays.<CompositeLayer> asList(backdrop, clouds, parallax);
+    }
+
+    /**
+     * Recolor backdrop, clouds and parallax between two themes of the world. Palettes are computed on load, so nothing
+     * is loaded nor allocated. Moon keeps its loaded theme.
+     * 
+     * @param from The theme index faded from, in {@link LandscapeType#getWorldLandscape(WorldType)}.
+     * @param to The theme index faded to, in {@link LandscapeType#getWorldLandscape(WorldType)}.
+     * @param progress The fade progress in <code>[0, 1]</code>.
+     */
+    void setTheme(int from, int to, double progress)
+    {
+        backdrop.setTheme(from, to, progress);
+        if (cloudsThemes != null)
+        {
+            clouds.recolor(cloudsThemes.getImage(), cloudsThemes.get(from, to, progress));
+        }
+        if (parallaxThemes != null)
+        {
+            parallax.recolor(parallaxThemes.getImage(), parallaxThemes.get(from, to, progress));
+        }
+    }
+
+    /**
+     * Release the surfaces built for rendering.
+     */
+    void dispose()
+    {
+        backdrop.dispose();
+        clouds.dispose();
+        parallax.dispose();
+    }
+
     /**
      * Called when the resolution changed.
      * 
@@ -95,30 +163,46 @@ class Swamp extends BackgroundGame
         setOffsetY(height - Constant.NATIVE.getHeight() + 20);
         backdrop.setScreenWidth(width);
         clouds.setScreenWidth(width);
-        parallax.setScreenSize(width, height);
+        parallax.setScreenWidth(width);
     }
 
     /**
      * Backdrop represents the back background plus top background elements.
      */
-    private final class Backdrop implements BackgroundComponent
+    private final class Backdrop implements BackgroundComponent, ScanlineEffect, CompositeLayer
     {
+        /** Scanlines reference. */
+        private final Scanlines scanlines;
         /** Backdrop color A. */
         private final BackgroundElement backcolorA;
         /** Backdrop color B. */
         private final BackgroundElement backcolorB;
+        /** Backdrop color A strip. */
+        private final SpriteStrip stripA;
+        /** Backdrop color B strip, <code>null</code> if not flickering. */
+        private final SpriteStrip stripB;
         /** Mountain element. */
         private final BackgroundElement mountain;
         /** Moon element. */
-        private final BackgroundElementRastered moon;
+        private final BackgroundElement moon;
+        /** Moon sprites by raster. */
+        private final Sprite[] moonRasters;
+        /** Moon pixels by raster. */
+        private final int[][] moonPixels = new int[MOON_RASTERS][];
         /** Mountain sprite. */
         private final Sprite mountainSprite;
+        /** Mountain strip. */
+        private final SpriteStrip mountainStrip;
+        /** Backdrop color A theme palettes, <code>null</code> if themes not indexed. */
+        private final ThemePalettes backcolorAThemes;
+        /** Backdrop color B theme palettes, <code>null</code> if not flickering or themes not indexed. */
+        private final ThemePalettes backcolorBThemes;
+        /** Mountain theme palettes, <code>null</code> if themes not indexed. */
+        private final ThemePalettes mountainThemes;
         /** Flickering flag. */
         private final boolean flickering;
         /** Original offset. */
         private final int moonOffset;
-        /** Screen wide value. */
-        private int w;
         /** Screen width. */
         int screenWidth;
         /** Flickering counter. */
@@ -130,34 +214,48 @@ class Swamp extends BackgroundGame
          * Constructor.
          * 
          * @param path The backdrop path.
+         * @param scanlines The scanlines reference.
          * @param flickering The flickering flag effect.
          * @param screenWidth The screen width.
          */
-        Backdrop(String path, boolean flickering, int screenWidth)
+        Backdrop(String path, Scanlines scanlines, boolean flickering, int screenWidth)
         {
+            this.scanlines = scanlines;
             this.flickering = flickering;
             if (flickering)
             {
-                backcolorA = createElement(path, "backcolor_a.png", 0, 0);
-                backcolorB = createElement(path, "backcolor_b.png", 0, 0);
+                backcolorA = assets.createElement(path, "backcolor_a.png", 0, 0);
+                backcolorB = assets.createElement(path, "backcolor_b.png", 0, 0);
+                stripB = new SpriteStrip((Sprite) backcolorB.getRenderable(), screenWidth);
+                backcolorAThemes = ThemePalettes.load(WorldType.SWAMP, themes, "backcolor_a.png");
+                backcolorBThemes = ThemePalettes.load(WorldType.SWAMP, themes, "backcolor_b.png");
                 flickerCount = 0;
             }
             else
             {
-                backcolorA = createElement(path, "backcolor.png", 0, 0);
+                backcolorA = assets.createElement(path, "backcolor.png", 0, 0);
                 backcolorB = null;
+                stripB = null;
+                backcolorAThemes = ThemePalettes.load(WorldType.SWAMP, themes, "backcolor.png");
+                backcolorBThemes = null;
             }
-            mountain = createElement(path, "mountain.png", 0, 124);
+            stripA = new SpriteStrip((Sprite) backcolorA.getRenderable(), screenWidth);
+            mountain = assets.createElement(path, "mountain.png", 0, 124);
             final int x = (int) (208 * scaleH);
             moonOffset = 50;
-            moon = new BackgroundElementRastered(x,
-                                                 moonOffset,
-                                                 Medias.create(path, "moon.png"),
-                                                 Medias.create(path, "raster3.xml"),
-                                                 MOON_RASTERS);
+            moonRasters = assets.loadRasters(Medias.create(path, "moon.png"),
+                                             Medias.create(path, "raster3.xml"),
+                                             MOON_RASTERS);
+            moon = new BackgroundElement(x, moonOffset, moonRasters[0]);
+            for (int i = 0; i < MOON_RASTERS; i++)
+            {
+                moonPixels[i] = Pixels.read(moonRasters[i].getSurface());
+            }
             mountainSprite = (Sprite) mountain.getRenderable();
+            mountainStrip = new SpriteStrip(mountainSprite, screenWidth, true);
+            mountainThemes = ThemePalettes.load(WorldType.SWAMP, themes, "mountain.png");
             this.screenWidth = screenWidth;
-            w = (int) Math.ceil(screenWidth / (double) ((Sprite) mountain.getRenderable()).getWidth()) + 1;
+            scanlines.add(this);
         }
 
         /**
@@ -168,7 +266,109 @@ class Swamp extends BackgroundGame
         void setScreenWidth(int width)
         {
             screenWidth = width;
-            w = (int) Math.ceil(screenWidth / (double) ((Sprite) mountain.getRenderable()).getWidth()) + 1;
+            mountainStrip.setScreenWidth(width);
+            stripA.setScreenWidth(width);
+            if (stripB != null)
+            {
+                stripB.setScreenWidth(width);
+            }
+        }
+
+        /**
+         * Recolor strips between two themes.
+         * 
+         * @param from The theme index faded from.
+         * @param to The theme index faded to.
+         * @param progress The fade progress in <code>[0, 1]</code>.
+         */
+        void setTheme(int from, int to, double progress)
+        {
+            recolor(stripA, backcolorAThemes, from, to, progress);
+            recolor(stripB, backcolorBThemes, from, to, progress);
+            recolor(mountainStrip, mountainThemes, from, to, progress);
+        }
+
+        /**
+         * Recolor a strip between two themes if its themes are indexed.
+         * 
+         * @param strip The strip to recolor (can be <code>null</code>).
+         * @param palettes The strip theme palettes (can be <code>null</code>).
+         * @param from The theme index faded from.
+         * @param to The theme index faded to.
+         * @param progress The fade progress in <code>[0, 1]</code>.
+         */
+        private void recolor(SpriteStrip strip, ThemePalettes palettes, int from, int to, double progress)
+        {
+            if (strip != null && palettes != null)
+            {
+                strip.recolor(palettes.getImage(), palettes.get(from, to, progress));
+            }
+        }
+
+        /**
+         * Release the strips surfaces.
+         */
+        void dispose()
+        {
+            stripA.dispose();
+            if (stripB != null)
+            {
+                stripB.dispose();
+            }
+            mountainStrip.dispose();
+        }
+
+        /**
+         * Get the current backdrop color strip.
+         * 
+         * @return The backdrop color strip.
+         */
+        private SpriteStrip getBackcolor()
+        {
+            if (flickerType || !flickering)
+            {
+                return stripA;
+            }
+            return stripB;
+        }
+
+        /**
+         * Get the moon raster to render, from its first visible line.
+         * 
+         * @return The moon raster index, {@link Scanlines#NO_RASTER} if moon not visible.
+         */
+        private int getMoonRaster()
+        {
+            final int top = getMoonTop();
+            final int visible = Math.max(0, top);
+            if (visible < top + moonRasters[0].getHeight() && scanlines.isInside(visible))
+            {
+                return scanlines.getRaster(visible);
+            }
+            return Scanlines.NO_RASTER;
+        }
+
+        /**
+         * Get the moon top screen line.
+         * 
+         * @return The moon top line.
+         */
+        private int getMoonTop()
+        {
+            return (int) (moon.getOffsetY() + moon.getMainY());
+        }
+
+        @Override
+        public void contribute(Scanlines scanlines)
+        {
+            final int raw = (int) (mountain.getOffsetY() + (totalHeight - getOffsetY())) / 6;
+            final int id = UtilMath.clamp(raw, 0, MOON_RASTERS - 1);
+            final int top = getMoonTop();
+            final int height = moonRasters[0].getHeight();
+            for (int y = top; y < top + height; y++)
+            {
+                scanlines.setRaster(y, id);
+            }
         }
 
         @Override
@@ -194,38 +394,55 @@ class Swamp extends BackgroundGame
         public void render(Graphic g)
         {
             // Render back background first
-            final Sprite sprite;
-            if (flickerType || !flickering)
-            {
-                sprite = (Sprite) backcolorA.getRenderable();
-            }
-            else
-            {
-                sprite = (Sprite) backcolorB.getRenderable();
-            }
-            for (int i = 0; i < Math.ceil(screenWidth / (double) sprite.getWidth()); i++)
+            final SpriteStrip strip = getBackcolor();
+            strip.render(g, backcolorA.getMainX(), (int) (backcolorA.getOffsetY() + backcolorA.getMainY()));
+
+            // Render moon, with the raster of its first visible line
+            final int raster = getMoonRaster();
+            if (raster != Scanlines.NO_RASTER)
             {
-                final int x = backcolorA.getMainX() + i * sprite.getWidth();
-                final double y = backcolorA.getOffsetY() + backcolorA.getMainY();
-                sprite.setLocation(x, y);
-                sprite.render(g);
+                final Sprite spriteMoon = moonRasters[raster];
+                spriteMoon.setLocation(moon.getMainX(), moon.getOffsetY() + moon.getMainY());
+                spriteMoon.render(g);
+                DrawCalls.count(1);
             }
 
-            // Render moon
-            final int id = (int) (mountain.getOffsetY() + (totalHeight - getOffsetY())) / 6;
-            final Sprite spriteMoon = moon.getRaster(id);
-            spriteMoon.setLocation(moon.getMainX(), moon.getOffsetY() + moon.getMainY());
-            spriteMoon.render(g);
-
             // Render mountains
             final int oy = (int) (mountain.getOffsetY() + mountain.getMainY());
             final int ox = (int) (-mountain.getOffsetX() + mountain.getMainX());
-            final int sx = mountainSprite.getWidth();
-            for (int j = 0; j < w; j++)
+            mountainStrip.render(g, ox, oy);
+        }
+
+        @Override
+        public void prepare()
+        {
+            // Nothing to prepare
+        }
+
+        @Override
+        public void composite(int[] frame, int width, int fromY, int toY)
+        {
+            final int by = (int) (backcolorA.getOffsetY() + backcolorA.getMainY());
+            getBackcolor().composite(frame, width, fromY, toY, backcolorA.getMainX(), by);
+
+            final int raster = getMoonRaster();
+            if (raster != Scanlines.NO_RASTER)
             {
-                mountainSprite.setLocation(ox + sx * j, oy);
-                mountainSprite.render(g);
+                final Sprite spriteMoon = moonRasters[raster];
+                Pixels.blit(moonPixels[raster],
+                            spriteMoon.getWidth(),
+                            spriteMoon.getHeight(),
+                            frame,
+                            width,
+                            moon.getMainX(),
+                            (int) (moon.getOffsetY() + moon.getMainY()),
+                            fromY,
+                            toY);
             }
+
+            final int oy = (int) (mountain.getOffsetY() + mountain.getMainY());
+            final int ox = (int) (-mountain.getOffsetX() + mountain.getMainX());
+            mountainStrip.composite(frame, width, fromY, toY, ox, oy);
         }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.util.UtilFolder;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Palette;
+import com.b3dgs.lionheart.PaletteRamp;
+
+/**
+ * Palettes of a background image for all themes of a world, indexed together, with the ramps between each themes
+ * pair computed once.
+ */
+final class ThemePalettes
+{
+    /** Ramp steps between two themes. */
+    private static final int STEPS = 32;
+
+    /**
+     * Load image of all themes and index them.
+     * 
+     * @param world The world type.
+     * @param themes The world themes.
+     * @param file The image file in each theme folder.
+     * @return The theme palettes, <code>null</code> if themes cannot be indexed together.
+     */
+    static ThemePalettes load(WorldType world, LandscapeType[] themes, String file)
+    {
+        final ImageBuffer[] variants = new ImageBuffer[themes.length];
+        try
+        {
+            for (int i = 0; i < themes.length; i++)
+            {
+                final String path = UtilFolder.getPath(Landscape.DIR_BACKGROUNDS,
+                                                       world.getFolder(),
+                                                       themes[i].getTheme());
+                variants[i] = Graphics.getImageBuffer(Medias.create(path, file));
+            }
+            return new ThemePalettes(variants);
+        }
+        catch (final LionEngineException exception)
+        {
+            Verbose.warning(ThemePalettes.class, "load", "Themes not indexed for ", file, ": ", exception.getMessage());
+            return null;
+        }
+        finally
+        {
+            for (final ImageBuffer variant : variants)
+            {
+                if (variant != null)
+                {
+                    variant.dispose();
+                }
+            }
+        }
+    }
+
+    /** Indexed image. */
+    private final IndexedImage image;
+    /** Palette by theme. */
+    private final Palette[] palettes;
+    /** Ramps between themes, only from lower to higher theme index. */
+    private final PaletteRamp[][] ramps;
+
+    /**
+     * Create palettes.
+     * 
+     * @param variants The image of each theme.
+     * @throws LionEngineException If variants cannot be indexed together.
+     */
+    private ThemePalettes(ImageBuffer[] variants)
+    {
+        palettes = new Palette[variants.length];
+        image = IndexedImage.create(variants, palettes);
+        ramps = new PaletteRamp[variants.length][variants.length];
+        for (int from = 0; from < variants.length; from++)
+        {
+            for (int to = from + 1; to < variants.length; to++)
+            {
+                ramps[from][to] = new PaletteRamp(palettes[from], palettes[to], STEPS);
+            }
+        }
+    }
+
+    /**
+     * Get the indexed image.
+     * 
+     * @return The indexed image.
+     */
+    IndexedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Get the palette between two themes.
+     * 
+     * @param from The theme index faded from.
+     * @param to The theme index faded to.
+     * @param progress The fade progress in <code>[0, 1]</code>.
+     * @return The palette of the nearest ramp step.
+     */
+    Palette get(int from, int to, double progress)
+    {
+        if (from == to)
+        {
+            return palettes[from];
+        }
+        if (from < to)
+        {
+            return ramps[from][to].get(progress);
+        }
+        return ramps[to][from].get(1.0 - progress);
+    }
+}
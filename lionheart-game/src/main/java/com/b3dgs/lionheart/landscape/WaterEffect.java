@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.landscape;
+
+import com.b3dgs.lionengine.util.UtilMath;
+
+/**
+ * Water distortion effect, shifting each screen line horizontally by a wave offset.
+ * <p>
+ * Line offsets are computed once in a table each time the wave advances, instead of for each line on each render,
+ * and contributed as {@link Scanlines} shifts.
+ * </p>
+ */
+public final class WaterEffect
+{
+    /** Wave frequency. */
+    private final double frequency;
+    /** Wave amplitude. */
+    private final double amplitude;
+    /** Wave offset force. */
+    private final double offsetForce;
+    /** Offset by screen line. */
+    private int[] offsets = new int[0];
+    /** Current wave value. */
+    private double wx = Double.NaN;
+
+    /**
+     * Create effect.
+     * 
+     * @param frequency The wave frequency.
+     * @param amplitude The wave amplitude.
+     * @param offsetForce The wave offset force.
+     */
+    public WaterEffect(double frequency, double amplitude, double offsetForce)
+    {
+        this.frequency = frequency;
+        this.amplitude = amplitude;
+        this.offsetForce = offsetForce;
+    }
+
+    /**
+     * Set the screen height, lines count of the offsets table.
+     * 
+     * @param height The screen height.
+     */
+    public void setScreenHeight(int height)
+    {
+        if (offsets.length != height)
+        {
+            offsets = new int[height];
+            wx = Double.NaN;
+        }
+    }
+
+    /**
+     * Update the offsets table if wave advanced.
+     * 
+     * @param wx The wave value.
+     */
+    public void update(double wx)
+    {
+        if (Double.compare(this.wx, wx) != 0)
+        {
+            this.wx = wx;
+            final double outside = Math.cos(wx) * offsetForce;
+            final double phase = wx * frequency;
+            for (int y = 0; y < offsets.length; y++)
+            {
+                final double inside = Math.cos(UtilMath.wrapDouble(y + phase, 0.0, 360.0)) * amplitude;
+                offsets[y] = (int) (inside + outside);
+            }
+        }
+    }
+
+    /**
+     * Get the offset of a screen line.
+     * 
+     * @param y The screen line.
+     * @return The line offset.
+     */
+    public int getOffset(int y)
+    {
+        return offsets[y];
+    }
+
+    /**
+     * Contribute the line offsets as shifts, from top to screen bottom.
+     * 
+     * @param scanlines The scanlines to write.
+     * @param top The first line to shift.
+     */
+    public void contribute(Scanlines scanlines, int top)
+    {
+        for (int y = Math.max(0, top); y < offsets.length; y++)
+        {
+            scanlines.addShift(y, offsets[y]);
+        }
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Chunked level data, read through a memory mapped file, or from memory when not available as a file.
+ * <p>
+ * Format (big endian):
+ * </p>
+ * <ul>
+ * <li>header: magic, version, tile width, tile height, width in tile, height in tile, chunk size (in tile), tile
+ * encoding, sheets configuration path (short length and UTF-8 bytes)</li>
+ * <li>chunk directory: for each chunk, row by row from the bottom, its data offset and length in bytes</li>
+ * <li>chunk data: for each chunk, <code>chunk size * chunk size</code> tile keys, row by row from the bottom, missing
+ * tiles included, encoded with the {@link TileEncoding} of the header ({@link TileEncoding#RAW} gives fixed size
+ * chunks)</li>
+ * </ul>
+ * <p>
+ * Opening only maps the file and reads the header, any chunk can then be decoded on its own. Legacy stream levels,
+ * written by the map persister, do not start with {@link #MAGIC} and are still read by the world.
+ * </p>
+ */
+public final class ChunkedLevel
+{
+    /** Format magic ("LRLC"). */
+    public static final int MAGIC = 0x4C524C43;
+    /** Format version. */
+    public static final int VERSION = 2;
+    /** Default chunk size in tile. */
+    public static final int CHUNK_SIZE = 16;
+    /** Header fixed part size in bytes. */
+    private static final int HEADER_SIZE = 8 * 4 + 2;
+    /** Directory entry size in bytes. */
+    private static final int ENTRY_SIZE = 2 * 4;
+    /** Stream read buffer size in bytes. */
+    private static final int READ_BUFFER = 8192;
+    /** Sheets path charset. */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Check if level data file is in chunked format.
+     * 
+     * @param file The level data file.
+     * @return <code>true</code> if chunked format, <code>false</code> if legacy stream format or too short.
+     * @throws IOException If error on reading.
+     */
+    public static boolean isChunked(Media file) throws IOException
+    {
+        final InputStream input = file.getInputStream();
+        try
+        {
+            return new DataInputStream(input).readInt() == MAGIC;
+        }
+        catch (final EOFException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            UtilStream.safeClose(input);
+        }
+    }
+
+    /**
+     * Save the map in chunked format.
+     * 
+     * @param map The map to save.
+     * @param sheets The sheets configuration used by the map.
+     * @param file The level data file destination.
+     * @param chunkSize The chunk size in tile.
+     * @param encoding The tile keys encoding.
+     * @throws IOException If error on writing.
+     */
+    public static void save(MapTile map, Media sheets, Media file, int chunkSize, TileEncoding encoding)
+            throws IOException
+    {
+        final OutputStream output = file.getOutputStream();
+        try
+        {
+            save(map, sheets, output, chunkSize, encoding);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+    }
+
+    /**
+     * Save the map in chunked format to a stream. Stream is flushed but not closed.
+     * 
+     * @param map The map to save.
+     * @param sheets The sheets configuration used by the map.
+     * @param output The level data destination.
+     * @param chunkSize The chunk size in tile.
+     * @param encoding The tile keys encoding.
+     * @throws IOException If error on writing.
+     */
+    public static void save(MapTile map, Media sheets, OutputStream output, int chunkSize, TileEncoding encoding)
+            throws IOException
+    {
+        final int widthInTile = map.getInTileWidth();
+        final int heightInTile = map.getInTileHeight();
+        final int chunksH = getChunks(widthInTile, chunkSize);
+        final int chunksV = getChunks(heightInTile, chunkSize);
+        final byte[] path = sheets.getPath().getBytes(CHARSET);
+        final byte[][] chunks = new byte[chunksH * chunksV][];
+        final int[] keys = new int[chunkSize * chunkSize];
+        for (int cy = 0; cy < chunksV; cy++)
+        {
+            for (int cx = 0; cx < chunksH; cx++)
+            {
+                for (int y = 0; y < chunkSize; y++)
+                {
+                    for (int x = 0; x < chunkSize; x++)
+                    {
+                        final int tx = cx * chunkSize + x;
+                        final int ty = cy * chunkSize + y;
+                        if (tx < widthInTile && ty < heightInTile)
+                        {
+                            keys[x + y * chunkSize] = TileKey.of(map.getTile(tx, ty));
+                        }
+                        else
+                        {
+                            keys[x + y * chunkSize] = TileKey.MISSING;
+                        }
+                    }
+                }
+                chunks[cx + cy * chunksH] = encoding.encode(keys);
+            }
+        }
+
+        final DataOutputStream writing = new DataOutputStream(new BufferedOutputStream(output));
+        writing.writeInt(MAGIC);
+        writing.writeInt(VERSION);
+        writing.writeInt(map.getTileWidth());
+        writing.writeInt(map.getTileHeight());
+        writing.writeInt(widthInTile);
+        writing.writeInt(heightInTile);
+        writing.writeInt(chunkSize);
+        writing.writeInt(encoding.getId());
+        writing.writeShort(path.length);
+        writing.write(path);
+
+        int offset = HEADER_SIZE + path.length + chunks.length * ENTRY_SIZE;
+        for (final byte[] chunk : chunks)
+        {
+            writing.writeInt(offset);
+            writing.writeInt(chunk.length);
+            offset += chunk.length;
+        }
+        for (final byte[] chunk : chunks)
+        {
+            writing.write(chunk);
+        }
+        writing.flush();
+    }
+
+    /**
+     * Open a chunked level by mapping its file. Level not available as a file, such as from classpath, is read to
+     * memory instead.
+     * 
+     * @param file The level data file.
+     * @return The opened level.
+     * @throws IOException If error on mapping, reading or invalid format.
+     */
+    public static ChunkedLevel open(Media file) throws IOException
+    {
+        final File path = file.getFile();
+        if (!path.isFile() || !path.canRead())
+        {
+            return new ChunkedLevel(ByteBuffer.wrap(read(file)));
+        }
+        return open(path);
+    }
+
+    /**
+     * Open a chunked level by mapping its file.
+     * 
+     * @param file The level data file.
+     * @return The opened level.
+     * @throws IOException If error on mapping or invalid format.
+     */
+    public static ChunkedLevel open(File file) throws IOException
+    {
+        final RandomAccessFile access = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = access.getChannel();
+            return new ChunkedLevel(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        }
+        finally
+        {
+            // Mapping remains valid once channel closed
+            UtilStream.safeClose(access);
+        }
+    }
+
+    /**
+     * Read the whole level data from its stream.
+     * 
+     * @param file The level data file.
+     * @return The level data.
+     * @throws IOException If error on reading.
+     */
+    private static byte[] read(Media file) throws IOException
+    {
+        final InputStream input = file.getInputStream();
+        try
+        {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[READ_BUFFER];
+            int read = input.read(buffer);
+            while (read >= 0)
+            {
+                output.write(buffer, 0, read);
+                read = input.read(buffer);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            UtilStream.safeClose(input);
+        }
+    }
+
+    /**
+     * Get the number of chunks needed to cover the size.
+     * 
+     * @param size The size in tile.
+     * @param chunkSize The chunk size in tile.
+     * @return The number of chunks.
+     */
+    private static int getChunks(int size, int chunkSize)
+    {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    /** Mapped data. */
+    private final ByteBuffer buffer;
+    /** Tile width. */
+    private final int tileWidth;
+    /** Tile height. */
+    private final int tileHeight;
+    /** Width in tile. */
+    private final int widthInTile;
+    /** Height in tile. */
+    private final int heightInTile;
+    /** Chunk size in tile. */
+    private final int chunkSize;
+    /** Horizontal chunks number. */
+    private final int chunksH;
+    /** Vertical chunks number. */
+    private final int chunksV;
+    /** Tile keys encoding. */
+    private final TileEncoding encoding;
+    /** Sheets configuration. */
+    private final Media sheets;
+    /** Chunk directory offset. */
+    private final int directory;
+
+    /**
+     * Create level from its mapped data.
+     * 
+     * @param buffer The mapped data.
+     * @throws IOException If invalid format.
+     */
+    private ChunkedLevel(ByteBuffer buffer) throws IOException
+    {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not a chunked level !");
+        }
+        final int version = buffer.getInt(4);
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported chunked level version: " + version);
+        }
+        tileWidth = buffer.getInt(8);
+        tileHeight = buffer.getInt(12);
+        widthInTile = buffer.getInt(16);
+        heightInTile = buffer.getInt(20);
+        chunkSize = buffer.getInt(24);
+        chunksH = getChunks(widthInTile, chunkSize);
+        chunksV = getChunks(heightInTile, chunkSize);
+        encoding = TileEncoding.get(buffer.getInt(28));
+        if (encoding == null)
+        {
+            throw new IOException("Unsupported chunked level encoding: " + buffer.getInt(28));
+        }
+
+        final byte[] path = new byte[buffer.getShort(HEADER_SIZE - 2)];
+        for (int i = 0; i < path.length; i++)
+        {
+            path[i] = buffer.get(HEADER_SIZE + i);
+        }
+        sheets = Medias.create(new String(path, CHARSET));
+        directory = HEADER_SIZE + path.length;
+    }
+
+    /**
+     * Create the empty map with the level size and load its sheets.
+     * 
+     * @param map The map reference.
+     */
+    public void create(MapTile map)
+    {
+        map.create(tileWidth, tileHeight, widthInTile, heightInTile);
+        map.loadSheets(sheets);
+    }
+
+    /**
+     * Load the whole level into the map.
+     * 
+     * @param map The map reference.
+     */
+    public void load(MapTile map)
+    {
+        create(map);
+        final int[] keys = new int[chunkSize * chunkSize];
+        for (int cy = 0; cy < chunksV; cy++)
+        {
+            for (int cx = 0; cx < chunksH; cx++)
+            {
+                loadChunk(map, cx, cy, keys);
+            }
+        }
+    }
+
+    /**
+     * Load the whole level into the map from already decoded chunks.
+     * 
+     * @param map The map reference.
+     * @param chunks The decoded chunks, as returned by {@link #readAll()}.
+     */
+    public void load(MapTile map, int[][] chunks)
+    {
+        create(map);
+        for (int cy = 0; cy < chunksV; cy++)
+        {
+            for (int cx = 0; cx < chunksH; cx++)
+            {
+                setChunk(map, cx, cy, chunks[cx + cy * chunksH]);
+            }
+        }
+    }
+
+    /**
+     * Decode all chunks tile keys, without map access, so it can be done from any thread.
+     * 
+     * @return The decoded chunks, indexed by <code>cx + cy * horizontal chunks</code>.
+     */
+    public int[][] readAll()
+    {
+        final int[][] chunks = new int[chunksH * chunksV][];
+        for (int cy = 0; cy < chunksV; cy++)
+        {
+            for (int cx = 0; cx < chunksH; cx++)
+            {
+                final int[] keys = new int[chunkSize * chunkSize];
+                readChunk(cx, cy, keys);
+                chunks[cx + cy * chunksH] = keys;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Decode a chunk and set its tiles to the map. Map must have been created with {@link #create(MapTile)}.
+     * 
+     * @param map The map reference.
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @param keys The decoding buffer (must be of <code>chunk size * chunk size</code> length).
+     */
+    public void loadChunk(MapTile map, int cx, int cy, int[] keys)
+    {
+        readChunk(cx, cy, keys);
+        setChunk(map, cx, cy, keys);
+    }
+
+    /**
+     * Set decoded chunk tiles to the map. Map must have been created with {@link #create(MapTile)}.
+     * 
+     * @param map The map reference.
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @param keys The decoded tile keys.
+     */
+    public void setChunk(MapTile map, int cx, int cy, int[] keys)
+    {
+        final int width = Math.min(chunkSize, widthInTile - cx * chunkSize);
+        final int height = Math.min(chunkSize, heightInTile - cy * chunkSize);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                TileKey.set(map, keys[x + y * chunkSize], cx * chunkSize + x, cy * chunkSize + y);
+            }
+        }
+    }
+
+    /**
+     * Remove chunk tiles from the map, other tiles are kept.
+     * 
+     * @param map The map reference.
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     */
+    public void clearChunk(MapTile map, int cx, int cy)
+    {
+        final int width = Math.min(chunkSize, widthInTile - cx * chunkSize);
+        final int height = Math.min(chunkSize, heightInTile - cy * chunkSize);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                TileKey.clear(map, cx * chunkSize + x, cy * chunkSize + y);
+            }
+        }
+    }
+
+    /**
+     * Decode a chunk tile keys. Only absolute reads are performed, so chunks can be decoded concurrently.
+     * 
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @param keys The decoded tile keys (must be of <code>chunk size * chunk size</code> length).
+     */
+    public void readChunk(int cx, int cy, int[] keys)
+    {
+        final int entry = directory + (cx + cy * chunksH) * ENTRY_SIZE;
+        encoding.decode(buffer, buffer.getInt(entry), keys);
+    }
+
+    /**
+     * Get the tile keys encoding.
+     * 
+     * @return The tile keys encoding.
+     */
+    public TileEncoding getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * Get the sheets configuration.
+     * 
+     * @return The sheets configuration.
+     */
+    public Media getSheets()
+    {
+        return sheets;
+    }
+
+    /**
+     * Get the tile width.
+     * 
+     * @return The tile width.
+     */
+    public int getTileWidth()
+    {
+        return tileWidth;
+    }
+
+    /**
+     * Get the tile height.
+     * 
+     * @return The tile height.
+     */
+    public int getTileHeight()
+    {
+        return tileHeight;
+    }
+
+    /**
+     * Get the width in tile.
+     * 
+     * @return The width in tile.
+     */
+    public int getWidthInTile()
+    {
+        return widthInTile;
+    }
+
+    /**
+     * Get the height in tile.
+     * 
+     * @return The height in tile.
+     */
+    public int getHeightInTile()
+    {
+        return heightInTile;
+    }
+
+    /**
+     * Get the chunk size in tile.
+     * 
+     * @return The chunk size in tile.
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Get the horizontal chunks number.
+     * 
+     * @return The horizontal chunks number.
+     */
+    public int getChunksHorizontal()
+    {
+        return chunksH;
+    }
+
+    /**
+     * Get the vertical chunks number.
+     * 
+     * @return The vertical chunks number.
+     */
+    public int getChunksVertical()
+    {
+        return chunksV;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.feature.tile.map.sheet.TileSheetsConfig;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Content hash utility.
+ */
+final class ContentHash
+{
+    /** Hash of a missing file. */
+    static final String MISSING = "";
+    /** Digest algorithm. */
+    private static final String ALGORITHM = "SHA-1";
+    /** Read buffer size. */
+    private static final int BUFFER_SIZE = 8192;
+    /** Hexadecimal digits. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Get the hash of the sheets configuration content and all its sheets images content.
+     * 
+     * @param sheets The sheets configuration.
+     * @return The sheets set hash.
+     * @throws IOException If error on reading.
+     */
+    static String ofSheets(Media sheets) throws IOException
+    {
+        final Collection<Media> medias = new ArrayList<Media>();
+        medias.add(sheets);
+        if (sheets.exists())
+        {
+            for (final String sheet : TileSheetsConfig.imports(sheets).getSheets())
+            {
+                medias.add(Medias.create(sheets.getParentPath(), sheet));
+            }
+        }
+        return of(medias);
+    }
+
+    /**
+     * Get the hash of the medias content, in order. Missing medias are ignored.
+     * 
+     * @param medias The medias to hash.
+     * @return The content hash, {@link #MISSING} if all medias are missing.
+     * @throws IOException If error on reading.
+     */
+    static String of(Collection<Media> medias) throws IOException
+    {
+        final MessageDigest digest = getDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        boolean found = false;
+        for (final Media media : medias)
+        {
+            if (media.exists())
+            {
+                found = true;
+                final InputStream input = media.getInputStream();
+                try
+                {
+                    int read = input.read(buffer);
+                    while (read >= 0)
+                    {
+                        digest.update(buffer, 0, read);
+                        read = input.read(buffer);
+                    }
+                }
+                finally
+                {
+                    UtilStream.safeClose(input);
+                }
+            }
+        }
+        if (!found)
+        {
+            return MISSING;
+        }
+        final byte[] hash = digest.digest();
+        final char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++)
+        {
+            chars[i * 2] = HEX[hash[i] >> 4 & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Get the message digest.
+     * 
+     * @return The message digest.
+     */
+    private static MessageDigest getDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (final NoSuchAlgorithmException exception)
+        {
+            throw new LionEngineException(exception, "Missing digest: ", ALGORITHM);
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private ContentHash()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
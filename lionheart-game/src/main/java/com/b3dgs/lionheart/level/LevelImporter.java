@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Engine;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.awt.EngineAwt;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionheart.Constant;
+import com.b3dgs.lionheart.Level;
+
+/**
+ * Convert level rips to level data files.
+ * <p>
+ * Can be run standalone before packaging, in order to import every {@link Level} and every rip found under
+ * {@link Level#DIR} in parallel, so the shipped game never has to import at runtime. First argument is the resources
+ * folder (default to {@link #DEFAULT_RESOURCES}, relative to the game project).
+ * </p>
+ */
+public final class LevelImporter
+{
+    /** Default resources folder. */
+    public static final String DEFAULT_RESOURCES = "src/main/resources/com/b3dgs/lionheart";
+    /** Default tile keys encoding. */
+    public static final TileEncoding DEFAULT_ENCODING = TileEncoding.RAW;
+    /** Rip file prefix. */
+    private static final String RIP_PREFIX = "level";
+    /** Rip file extension. */
+    private static final String RIP_EXTENSION = ".png";
+    /** Nano seconds in a milli second. */
+    private static final long NANO_TO_MILLI = 1000000L;
+
+    /**
+     * Main function.
+     * 
+     * @param args The arguments (optional resources folder).
+     */
+    public static void main(String[] args)
+    {
+        final String resources;
+        if (args.length > 0)
+        {
+            resources = args[0];
+        }
+        else
+        {
+            resources = DEFAULT_RESOURCES;
+        }
+        EngineAwt.start(Constant.NAME, Constant.VERSION, resources);
+        try
+        {
+            importStale(getRips(), Runtime.getRuntime().availableProcessors());
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception, "Error on checking levels manifest !");
+        }
+        finally
+        {
+            Engine.terminate();
+        }
+    }
+
+    /**
+     * Get all known rips with their level data file: every {@link Level} plus any rip found in the levels sub folders.
+     * 
+     * @return The rips found, associated to their level data file.
+     */
+    public static Map<Media, Media> getRips()
+    {
+        final Map<Media, Media> rips = new LinkedHashMap<Media, Media>();
+        final Collection<String> paths = new HashSet<String>();
+        for (final Level level : Level.values())
+        {
+            rips.put(level.getRip(), level.getFile());
+            paths.add(level.getRip().getPath());
+        }
+
+        final File[] worlds = Medias.create(Level.DIR).getFile().listFiles();
+        if (worlds != null)
+        {
+            for (final File world : worlds)
+            {
+                final File[] files = world.listFiles();
+                if (world.isDirectory() && files != null)
+                {
+                    for (final File file : files)
+                    {
+                        if (isRip(file))
+                        {
+                            final String name = file.getName();
+                            final String data = name.substring(0, name.length() - RIP_EXTENSION.length())
+                                                + Level.EXTENSION;
+                            final Media rip = Medias.create(Level.DIR, world.getName(), name);
+                            if (paths.add(rip.getPath()))
+                            {
+                                rips.put(rip, Medias.create(Level.DIR, world.getName(), data));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return rips;
+    }
+
+    /**
+     * Import only rips which inputs changed since their last import, according to the {@link LevelManifest}. The
+     * manifest is updated with the imported rips.
+     * 
+     * @param rips The rips to check, associated to their level data file.
+     * @param threads The number of threads to use.
+     * @return The rips successfully imported.
+     * @throws IOException If error on reading or writing manifest.
+     */
+    public static Collection<Media> importStale(Map<Media, Media> rips, int threads) throws IOException
+    {
+        final LevelManifest manifest = LevelManifest.load();
+        final Map<Media, Media> stale = manifest.findStale(rips, threads);
+        Verbose.info(String.valueOf(stale.size()), "/", String.valueOf(rips.size()), " levels to import");
+        if (stale.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final Collection<Media> imported = importAll(stale, threads);
+        for (final Media rip : imported)
+        {
+            manifest.update(rip, stale.get(rip));
+        }
+        manifest.save();
+        return imported;
+    }
+
+    /**
+     * Import all rips in parallel, each task using its own {@link Services} and {@link MapTile}. Failing rips are
+     * reported and do not stop the others.
+     * 
+     * @param rips The rips to import, associated to their level data file.
+     * @param threads The number of threads to use.
+     * @return The rips successfully imported.
+     */
+    public static Collection<Media> importAll(Map<Media, Media> rips, int threads)
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        final List<Future<Long>> tasks = new ArrayList<Future<Long>>(rips.size());
+        final long start = System.nanoTime();
+        for (final Map.Entry<Media, Media> entry : rips.entrySet())
+        {
+            tasks.add(executor.submit(new Callable<Long>()
+            {
+                @Override
+                public Long call() throws IOException
+                {
+                    final long begin = System.nanoTime();
+                    importLevel(entry.getKey(), entry.getValue());
+                    return Long.valueOf(System.nanoTime() - begin);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        final Collection<Media> imported = new ArrayList<Media>(rips.size());
+        long cumulated = 0L;
+        int i = 0;
+        for (final Media rip : rips.keySet())
+        {
+            try
+            {
+                final long elapsed = tasks.get(i).get().longValue();
+                cumulated += elapsed;
+                imported.add(rip);
+                Verbose.info("Imported ", rip.getPath(), " in ", String.valueOf(elapsed / NANO_TO_MILLI), "ms");
+            }
+            catch (final ExecutionException exception)
+            {
+                Verbose.exception(exception.getCause(), "Error on importing ", rip.getPath());
+            }
+            catch (final InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new LionEngineException(exception, "Import interrupted !");
+            }
+            i++;
+        }
+        awaitTermination(executor);
+
+        final long total = (System.nanoTime() - start) / NANO_TO_MILLI;
+        Verbose.info(String.format(Locale.ENGLISH,
+                                   "Imported %d/%d levels in %dms (%dms cumulated, %d threads)",
+                                   Integer.valueOf(imported.size()),
+                                   Integer.valueOf(rips.size()),
+                                   Long.valueOf(total),
+                                   Long.valueOf(cumulated / NANO_TO_MILLI),
+                                   Integer.valueOf(threads)));
+        return imported;
+    }
+
+    /**
+     * Import the level rip and save it as {@link ChunkedLevel} with {@link #DEFAULT_ENCODING}.
+     * 
+     * @param rip The level rip.
+     * @param data The level data file destination.
+     * @throws IOException If error on reading dictionary or saving.
+     * @throws LionEngineException If error on importing rip.
+     */
+    public static void importLevel(Media rip, Media data) throws IOException
+    {
+        importLevel(rip, data, DEFAULT_ENCODING);
+    }
+
+    /**
+     * Import the level rip and save it as {@link ChunkedLevel}. Rip blocks are matched through the
+     * {@link TileDictionary} of the sheets configuration found next to the rip.
+     * 
+     * @param rip The level rip.
+     * @param data The level data file destination.
+     * @param encoding The tile keys encoding.
+     * @throws IOException If error on reading dictionary or saving.
+     * @throws LionEngineException If error on importing rip.
+     */
+    public static void importLevel(Media rip, Media data, TileEncoding encoding) throws IOException
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        final Media sheets = Medias.create(rip.getParentPath(), TileDictionary.SHEETS);
+        final int missing = TileDictionary.get(sheets).convert(map, rip, sheets);
+        if (missing > 0)
+        {
+            Verbose.warning(LevelImporter.class,
+                            "importLevel",
+                            rip.getPath(),
+                            ": ",
+                            String.valueOf(missing),
+                            " unknown tiles");
+        }
+        ChunkedLevel.save(map, sheets, data, ChunkedLevel.CHUNK_SIZE, encoding);
+    }
+
+    /**
+     * Check if file is a level rip.
+     * 
+     * @param file The file to check.
+     * @return <code>true</code> if level rip, <code>false</code> else.
+     */
+    private static boolean isRip(File file)
+    {
+        final String name = file.getName().toLowerCase(Locale.ENGLISH);
+        return file.isFile() && name.startsWith(RIP_PREFIX) && name.endsWith(RIP_EXTENSION);
+    }
+
+    /**
+     * Wait for executor termination.
+     * 
+     * @param executor The executor to wait.
+     */
+    private static void awaitTermination(ExecutorService executor)
+    {
+        try
+        {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new LionEngineException(exception, "Import interrupted !");
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private LevelImporter()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
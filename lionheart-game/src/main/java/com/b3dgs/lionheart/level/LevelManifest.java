@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.Level;
+
+/**
+ * Level manifest, storing for each level data file the content hashes of the inputs it was imported from: rip,
+ * sheets (configuration and images), groups and transitions.
+ * <p>
+ * A level data file is stale if missing or if any of its inputs hash changed, so only edited levels are imported
+ * again.
+ * </p>
+ */
+public final class LevelManifest
+{
+    /** Manifest file name, in levels folder. */
+    public static final String FILE = "levels.manifest";
+    /** Groups configuration file name. */
+    private static final String GROUPS = "groups.xml";
+    /** Transitions configuration file name. */
+    private static final String TRANSITIONS = "transitions.xml";
+    /** Manifest header comment. */
+    private static final String COMMENT = "Level inputs hash";
+
+    /**
+     * Inputs of a level data file.
+     */
+    private enum Input
+    {
+        /** Level rip. */
+        RIP,
+        /** Sheets configuration and images. */
+        SHEETS,
+        /** Groups configuration. */
+        GROUPS,
+        /** Transitions configuration. */
+        TRANSITIONS;
+    }
+
+    /**
+     * Load the manifest from the levels folder, empty if not existing.
+     * 
+     * @return The loaded manifest.
+     * @throws IOException If error on reading.
+     */
+    public static LevelManifest load() throws IOException
+    {
+        final LevelManifest manifest = new LevelManifest(Medias.create(Level.DIR, FILE));
+        if (manifest.file.exists())
+        {
+            final InputStream input = manifest.file.getInputStream();
+            try
+            {
+                manifest.hashes.load(input);
+            }
+            finally
+            {
+                UtilStream.safeClose(input);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Get the manifest key of a level input.
+     * 
+     * @param data The level data file.
+     * @param input The input type.
+     * @return The manifest key.
+     */
+    private static String getKey(Media data, Input input)
+    {
+        return data.getPath() + '.' + input.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Get the task result.
+     * 
+     * @param task The task reference.
+     * @return The task result.
+     * @throws IOException If task failed on reading.
+     */
+    private static Boolean get(Future<Boolean> task) throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (final ExecutionException exception)
+        {
+            if (exception.getCause() instanceof IOException)
+            {
+                throw (IOException) exception.getCause();
+            }
+            throw new LionEngineException(exception.getCause());
+        }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new LionEngineException(exception, "Manifest check interrupted !");
+        }
+    }
+
+    /** Manifest file. */
+    private final Media file;
+    /** Stored hashes. */
+    private final Properties hashes = new Properties();
+    /** Current hashes by level data path, computed by {@link #findStale(Map, int)}. */
+    private final Map<String, String[]> current = new ConcurrentHashMap<String, String[]>();
+    /** Shared inputs hash by path, as sheets, groups and transitions are common to a world. */
+    private final Map<String, String> shared = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Create manifest.
+     * 
+     * @param file The manifest file.
+     */
+    private LevelManifest(Media file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Find stale level data files, by hashing their inputs in parallel.
+     * 
+     * @param rips The rips, associated to their level data file.
+     * @param threads The number of threads to use.
+     * @return The stale rips, associated to their level data file.
+     * @throws IOException If error on reading an input.
+     */
+    public Map<Media, Media> findStale(Map<Media, Media> rips, int threads) throws IOException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        final List<Future<Boolean>> tasks = new ArrayList<Future<Boolean>>(rips.size());
+        for (final Map.Entry<Media, Media> entry : rips.entrySet())
+        {
+            tasks.add(executor.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws IOException
+                {
+                    return Boolean.valueOf(isStale(entry.getKey(), entry.getValue()));
+                }
+            }));
+        }
+        executor.shutdown();
+
+        final Map<Media, Media> stale = new LinkedHashMap<Media, Media>();
+        int i = 0;
+        for (final Map.Entry<Media, Media> entry : rips.entrySet())
+        {
+            if (get(tasks.get(i)).booleanValue())
+            {
+                stale.put(entry.getKey(), entry.getValue());
+            }
+            i++;
+        }
+        return Collections.unmodifiableMap(stale);
+    }
+
+    /**
+     * Store the current inputs hashes of an imported level.
+     * 
+     * @param rip The level rip.
+     * @param data The imported level data file.
+     * @throws IOException If error on reading an input.
+     */
+    public void update(Media rip, Media data) throws IOException
+    {
+        String[] values = current.get(data.getPath());
+        if (values == null)
+        {
+            values = computeHashes(rip);
+        }
+        for (final Input input : Input.values())
+        {
+            hashes.setProperty(getKey(data, input), values[input.ordinal()]);
+        }
+    }
+
+    /**
+     * Save the manifest.
+     * 
+     * @throws IOException If error on writing.
+     */
+    public void save() throws IOException
+    {
+        final OutputStream output = file.getOutputStream();
+        try
+        {
+            hashes.store(output, COMMENT);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+    }
+
+    /**
+     * Check if level data file is stale.
+     * 
+     * @param rip The level rip.
+     * @param data The level data file.
+     * @return <code>true</code> if missing or any input changed, <code>false</code> else.
+     * @throws IOException If error on reading an input.
+     */
+    private boolean isStale(Media rip, Media data) throws IOException
+    {
+        final String[] values = computeHashes(rip);
+        current.put(data.getPath(), values);
+        if (!data.exists())
+        {
+            return true;
+        }
+        for (final Input input : Input.values())
+        {
+            if (!values[input.ordinal()].equals(hashes.getProperty(getKey(data, input))))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute all inputs hash of a level.
+     * 
+     * @param rip The level rip.
+     * @return The inputs hash, indexed by input ordinal.
+     * @throws IOException If error on reading an input.
+     */
+    private String[] computeHashes(Media rip) throws IOException
+    {
+        final String folder = rip.getParentPath();
+        final String[] values = new String[Input.values().length];
+        values[Input.RIP.ordinal()] = ContentHash.of(Collections.singletonList(rip));
+        values[Input.SHEETS.ordinal()] = getSharedSheets(Medias.create(folder, TileDictionary.SHEETS));
+        values[Input.GROUPS.ordinal()] = getShared(Medias.create(folder, GROUPS));
+        values[Input.TRANSITIONS.ordinal()] = getShared(Medias.create(folder, TRANSITIONS));
+        return values;
+    }
+
+    /**
+     * Get the shared sheets set hash, computed once.
+     * 
+     * @param sheets The sheets configuration.
+     * @return The sheets set hash.
+     * @throws IOException If error on reading.
+     */
+    private String getSharedSheets(Media sheets) throws IOException
+    {
+        String hash = shared.get(sheets.getPath());
+        if (hash == null)
+        {
+            hash = ContentHash.ofSheets(sheets);
+            shared.put(sheets.getPath(), hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Get the shared input hash, computed once.
+     * 
+     * @param media The input media.
+     * @return The input hash.
+     * @throws IOException If error on reading.
+     */
+    private String getShared(Media media) throws IOException
+    {
+        String hash = shared.get(media.getPath());
+        if (hash == null)
+        {
+            hash = ContentHash.of(Collections.singletonList(media));
+            shared.put(media.getPath(), hash);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.game.Camera;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.util.UtilMath;
+
+/**
+ * Stream map chunks from a {@link ChunkedLevel} around the camera.
+ * <p>
+ * Only chunks inside the camera view plus a margin are set to the map. Chunks ahead of the horizontal scroll
+ * direction are decoded on a background thread, so they are ready when reaching the view. Far chunks are evicted
+ * from the map and from the decoded chunks, keeping the resident size constant whatever the level size.
+ * </p>
+ */
+public final class MapStreamer
+{
+    /** Default margin in chunk. */
+    public static final int DEFAULT_MARGIN = 1;
+    /** Chunks prefetched ahead of the scroll direction. */
+    private static final int PREFETCH = 2;
+    /** Prefetch thread name. */
+    private static final String THREAD_NAME = "Lionheart map streamer";
+
+    /** Level source. */
+    private final ChunkedLevel level;
+    /** Map reference. */
+    private final MapTile map;
+    /** Margin around view in chunk. */
+    private final int margin;
+    /** Decoded chunks by index, filled from the prefetch thread. */
+    private final Map<Integer, int[]> decoded = new ConcurrentHashMap<Integer, int[]>();
+    /** Chunks being decoded by the prefetch thread. */
+    private final Set<Integer> pending = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    /** Chunks set to the map. */
+    private final boolean[] live;
+    /** Prefetch executor. */
+    private final ExecutorService executor;
+    /** Chunk width in pixel. */
+    private final int chunkWidth;
+    /** Chunk height in pixel. */
+    private final int chunkHeight;
+    /** Minimum horizontal chunk kept, read by the prefetch thread. */
+    private volatile int keepMinCx;
+    /** Maximum horizontal chunk kept, read by the prefetch thread. */
+    private volatile int keepMaxCx;
+    /** Minimum vertical chunk kept, read by the prefetch thread. */
+    private volatile int keepMinCy;
+    /** Maximum vertical chunk kept, read by the prefetch thread. */
+    private volatile int keepMaxCy;
+    /** Live chunks number. */
+    private int liveCount;
+    /** Chunks evicted. */
+    private int evictions;
+
+    /**
+     * Create streamer. Map must have been created with {@link ChunkedLevel#create(MapTile)}.
+     * 
+     * @param level The level source.
+     * @param map The map reference.
+     * @param margin The margin around the view in chunk (must be positive).
+     */
+    public MapStreamer(ChunkedLevel level, MapTile map, int margin)
+    {
+        Check.superiorOrEqual(margin, 0);
+
+        this.level = level;
+        this.map = map;
+        this.margin = margin;
+        live = new boolean[level.getChunksHorizontal() * level.getChunksVertical()];
+        chunkWidth = level.getChunkSize() * level.getTileWidth();
+        chunkHeight = level.getChunkSize() * level.getTileHeight();
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Update streamed chunks from camera view. Must be called from the thread owning the map.
+     * 
+     * @param camera The camera reference.
+     */
+    public void update(Camera camera)
+    {
+        final int maxX = level.getChunksHorizontal() - 1;
+        final int maxY = level.getChunksVertical() - 1;
+        final int minCx = UtilMath.clamp((int) Math.floor(camera.getX() / chunkWidth) - margin, 0, maxX);
+        final int maxCx = UtilMath.clamp((int) Math.floor((camera.getX() + camera.getWidth()) / chunkWidth) + margin,
+                                         0,
+                                         maxX);
+        final int minCy = UtilMath.clamp((int) Math.floor(camera.getY() / chunkHeight) - margin, 0, maxY);
+        final int maxCy = UtilMath.clamp((int) Math.floor((camera.getY() + camera.getHeight()) / chunkHeight)
+                                         + margin,
+                                         0,
+                                         maxY);
+
+        evictFar(minCx, maxCx, minCy, maxCy);
+
+        for (int cy = minCy; cy <= maxCy; cy++)
+        {
+            for (int cx = minCx; cx <= maxCx; cx++)
+            {
+                final int index = getIndex(cx, cy);
+                if (!live[index])
+                {
+                    level.setChunk(map, cx, cy, getKeys(cx, cy));
+                    live[index] = true;
+                    liveCount++;
+                }
+            }
+        }
+
+        final double movement = camera.getMovementHorizontal();
+        if (movement > 0.0)
+        {
+            prefetch(maxCx + 1, Math.min(maxX, maxCx + PREFETCH), minCy, maxCy);
+        }
+        else if (movement < 0.0)
+        {
+            prefetch(Math.max(0, minCx - PREFETCH), minCx - 1, minCy, maxCy);
+        }
+    }
+
+    /**
+     * Stop the prefetch thread.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the number of chunks set to the map.
+     * 
+     * @return The live chunks number.
+     */
+    public int getLiveChunks()
+    {
+        return liveCount;
+    }
+
+    /**
+     * Get the number of decoded chunks kept.
+     * 
+     * @return The decoded chunks number.
+     */
+    public int getDecodedChunks()
+    {
+        return decoded.size();
+    }
+
+    /**
+     * Get the number of chunks evicted.
+     * 
+     * @return The evictions number.
+     */
+    public int getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Evict chunks outside the kept area, removing only their tiles from the map, and drop their decoded keys, live or
+     * not. The prefetch distance is kept around the view as hysteresis, so scrolling back and forth around a chunk
+     * border does not evict and set again.
+     * 
+     * @param minCx The minimum horizontal chunk in view.
+     * @param maxCx The maximum horizontal chunk in view.
+     * @param minCy The minimum vertical chunk in view.
+     * @param maxCy The maximum vertical chunk in view.
+     */
+    private void evictFar(int minCx, int maxCx, int minCy, int maxCy)
+    {
+        keepMinCx = minCx - PREFETCH;
+        keepMaxCx = maxCx + PREFETCH;
+        keepMinCy = minCy;
+        keepMaxCy = maxCy;
+
+        for (int cy = 0; cy < level.getChunksVertical(); cy++)
+        {
+            for (int cx = 0; cx < level.getChunksHorizontal(); cx++)
+            {
+                final int index = getIndex(cx, cy);
+                if (live[index] && !isKept(cx, cy))
+                {
+                    level.clearChunk(map, cx, cy);
+                    live[index] = false;
+                    liveCount--;
+                    evictions++;
+                }
+            }
+        }
+
+        final Iterator<Integer> indexes = decoded.keySet().iterator();
+        while (indexes.hasNext())
+        {
+            final int index = indexes.next().intValue();
+            if (!isKept(index % level.getChunksHorizontal(), index / level.getChunksHorizontal()))
+            {
+                indexes.remove();
+            }
+        }
+    }
+
+    /**
+     * Check if chunk is inside the kept area.
+     * 
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @return <code>true</code> if kept, <code>false</code> if it can be evicted.
+     */
+    private boolean isKept(int cx, int cy)
+    {
+        return cx >= keepMinCx && cx <= keepMaxCx && cy >= keepMinCy && cy <= keepMaxCy;
+    }
+
+    /**
+     * Decode chunks in background if not already decoded.
+     * 
+     * @param fromCx The first horizontal chunk.
+     * @param toCx The last horizontal chunk.
+     * @param minCy The first vertical chunk.
+     * @param maxCy The last vertical chunk.
+     */
+    private void prefetch(int fromCx, int toCx, int minCy, int maxCy)
+    {
+        for (int cy = minCy; cy <= maxCy; cy++)
+        {
+            for (int cx = fromCx; cx <= toCx; cx++)
+            {
+                final Integer index = Integer.valueOf(getIndex(cx, cy));
+                if (!decoded.containsKey(index) && pending.add(index))
+                {
+                    final int chunkX = cx;
+                    final int chunkY = cy;
+                    executor.execute(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            decode(index, chunkX, chunkY);
+                            pending.remove(index);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Get decoded chunk keys, decoding it now if not prefetched.
+     * 
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @return The chunk keys.
+     */
+    private int[] getKeys(int cx, int cy)
+    {
+        final Integer index = Integer.valueOf(getIndex(cx, cy));
+        final int[] keys = decoded.get(index);
+        if (keys == null)
+        {
+            return decode(index, cx, cy);
+        }
+        return keys;
+    }
+
+    /**
+     * Decode chunk keys and store them if the chunk is still inside the kept area. A prefetch completing after the
+     * camera moved away is dropped.
+     * 
+     * @param index The chunk index.
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @return The chunk keys.
+     */
+    private int[] decode(Integer index, int cx, int cy)
+    {
+        final int[] keys = new int[level.getChunkSize() * level.getChunkSize()];
+        level.readChunk(cx, cy, keys);
+        if (isKept(cx, cy))
+        {
+            decoded.put(index, keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Get chunk index.
+     * 
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @return The chunk index.
+     */
+    private int getIndex(int cx, int cy)
+    {
+        return cx + cy * level.getChunksHorizontal();
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.drawable.Drawable;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.sheet.TileSheetsConfig;
+import com.b3dgs.lionengine.game.feature.tile.map.viewer.MapTileRenderer;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Raster;
+import com.b3dgs.lionengine.graphic.RasterData;
+import com.b3dgs.lionengine.graphic.SpriteTiled;
+import com.b3dgs.lionengine.util.UtilColor;
+import com.b3dgs.lionengine.util.UtilStream;
+import com.b3dgs.lionheart.RenderCommands;
+import com.b3dgs.lionheart.RenderLayer;
+
+/**
+ * Map raster sheets, rendering each tile with the raster sheet of its vertical position.
+ * <p>
+ * Generated raster sheets are cached in the user {@link #CACHE} directory, one file per source sheet named after the
+ * content hash of the raster definition and source sheet they were generated from. Resources are never written, and
+ * sheets are generated again only if this hash changed, so loading a level only reads the cache.
+ * </p>
+ */
+public final class RasterSheets implements MapTileRenderer
+{
+    /** Number of raster per sheet. */
+    public static final int RASTERS = 15;
+    /** Raster definition file, next to the sheets configuration. */
+    public static final String FILE = "raster3.xml";
+    /** Generated sheets cache directory. */
+    public static final File CACHE = new File(System.getProperty("user.home"), ".lionheart/raster");
+    /** Cache file extension. */
+    private static final String EXTENSION = ".rasters";
+    /** Cache file being written extension. */
+    private static final String EXTENSION_TEMP = ".tmp";
+
+    /**
+     * Load the raster sheets of the map, from cache if up to date, else generate and cache them.
+     * 
+     * @param map The map reference, with sheets loaded.
+     * @param rasterFile The raster definition.
+     * @return The loaded raster sheets.
+     * @throws LionEngineException If error on reading raster or sheets.
+     */
+    public static RasterSheets load(MapTile map, Media rasterFile)
+    {
+        return load(map.getMedia(), map.getTileWidth(), map.getTileHeight(), rasterFile);
+    }
+
+    /**
+     * Load the raster sheets of a sheets configuration, from cache if up to date, else generate and cache them. Does
+     * not need the map, so it can be called from a loading thread.
+     * 
+     * @param sheetsConfig The sheets configuration.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @param rasterFile The raster definition.
+     * @return The loaded raster sheets.
+     * @throws LionEngineException If error on reading raster or sheets.
+     */
+    public static RasterSheets load(Media sheetsConfig, int tw, int th, Media rasterFile)
+    {
+        final String parent = sheetsConfig.getParentPath();
+        final List<String> names = new ArrayList<String>(TileSheetsConfig.imports(sheetsConfig).getSheets());
+        final RasterSheets sheets = new RasterSheets(th);
+        Raster raster = null;
+
+        for (int s = 0; s < names.size(); s++)
+        {
+            final Media source = Medias.create(parent, names.get(s));
+            final File cache = new File(CACHE, getHash(rasterFile, source) + EXTENSION);
+            List<SpriteTiled> rasters = null;
+            if (cache.isFile())
+            {
+                rasters = read(cache, tw, th);
+            }
+            if (rasters == null)
+            {
+                if (raster == null)
+                {
+                    raster = Raster.load(rasterFile);
+                }
+                rasters = generate(Graphics.getImageBuffer(source), raster, tw, th);
+                write(cache, rasters);
+            }
+            sheets.rasters.put(Integer.valueOf(s), rasters);
+        }
+        return sheets;
+    }
+
+    /**
+     * Generate the raster sheets of the map, without cache.
+     * 
+     * @param map The map reference, with sheets loaded.
+     * @param rasterFile The raster definition.
+     * @return The generated raster sheets.
+     * @throws LionEngineException If error on reading raster.
+     */
+    public static RasterSheets generate(MapTile map, Media rasterFile)
+    {
+        final Raster raster = Raster.load(rasterFile);
+        final RasterSheets sheets = new RasterSheets(map.getTileHeight());
+        for (int s = 0; s < map.getSheetsNumber(); s++)
+        {
+            final Integer sheet = Integer.valueOf(s);
+            final ImageBuffer source = map.getSheet(sheet).getSurface();
+            sheets.rasters.put(sheet, generate(source, raster, map.getTileWidth(), map.getTileHeight()));
+        }
+        return sheets;
+    }
+
+    /**
+     * Get the content hash of the raster definition and its source sheet.
+     * 
+     * @param rasterFile The raster definition.
+     * @param sheet The source sheet image.
+     * @return The content hash.
+     * @throws LionEngineException If error on reading.
+     */
+    private static String getHash(Media rasterFile, Media sheet)
+    {
+        try
+        {
+            return ContentHash.of(Arrays.asList(rasterFile, sheet));
+        }
+        catch (final IOException exception)
+        {
+            throw new LionEngineException(exception, sheet);
+        }
+    }
+
+    /**
+     * Read the cached raster sheets.
+     * 
+     * @param cache The raster sheets cache file.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @return The raster sheets, by raster index, <code>null</code> if unable to read cache.
+     */
+    private static List<SpriteTiled> read(File cache, int tw, int th)
+    {
+        DataInputStream input = null;
+        try
+        {
+            input = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(cache))));
+            final int width = input.readInt();
+            final int height = input.readInt();
+            final int[] pixels = new int[width * height];
+            final List<SpriteTiled> rasters = new ArrayList<SpriteTiled>(RASTERS);
+            for (int i = 0; i < RASTERS; i++)
+            {
+                for (int p = 0; p < pixels.length; p++)
+                {
+                    pixels[p] = input.readInt();
+                }
+                final ImageBuffer buffer = Graphics.createImageBuffer(width, height);
+                buffer.setRgb(0, 0, width, height, pixels, 0, width);
+                final SpriteTiled sheet = Drawable.loadSpriteTiled(buffer, tw, th);
+                sheet.prepare();
+                rasters.add(sheet);
+            }
+            return rasters;
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception, "Unable to read raster sheets: ", cache.getPath());
+            return null;
+        }
+        finally
+        {
+            UtilStream.safeClose(input);
+        }
+    }
+
+    /**
+     * Generate the raster sheets of a source sheet.
+     * 
+     * @param source The source sheet image.
+     * @param raster The raster definition.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @return The raster sheets, by raster index.
+     */
+    private static List<SpriteTiled> generate(ImageBuffer source, Raster raster, int tw, int th)
+    {
+        final List<SpriteTiled> rasters = new ArrayList<SpriteTiled>(RASTERS);
+        for (int i = 0; i < RASTERS; i++)
+        {
+            final ImageBuffer buffer = generate(source, raster, i, th);
+            final SpriteTiled sheet = Drawable.loadSpriteTiled(buffer, tw, th);
+            sheet.prepare();
+            rasters.add(sheet);
+        }
+        return rasters;
+    }
+
+    /**
+     * Generate the raster image of an image.
+     * 
+     * @param source The source image.
+     * @param raster The raster definition.
+     * @param index The raster index.
+     * @param height The raster gradient height.
+     * @return The raster image.
+     */
+    public static ImageBuffer generate(ImageBuffer source, Raster raster, int index, int height)
+    {
+        final RasterData red = raster.getRed();
+        final RasterData green = raster.getGreen();
+        final RasterData blue = raster.getBlue();
+        return Graphics.getRasterBuffer(source,
+                                        UtilColor.getRasterColor(index, red, RASTERS),
+                                        UtilColor.getRasterColor(index, green, RASTERS),
+                                        UtilColor.getRasterColor(index, blue, RASTERS),
+                                        UtilColor.getRasterColor(index + 1, red, RASTERS),
+                                        UtilColor.getRasterColor(index + 1, green, RASTERS),
+                                        UtilColor.getRasterColor(index + 1, blue, RASTERS),
+                                        height);
+    }
+
+    /**
+     * Write the generated raster sheets to cache. Failure is only reported, raster sheets will be generated again on
+     * next load.
+     * 
+     * @param cache The raster sheets cache file.
+     * @param rasters The raster sheets.
+     */
+    private static void write(File cache, List<SpriteTiled> rasters)
+    {
+        final File temp = new File(cache.getPath() + EXTENSION_TEMP);
+        DataOutputStream output = null;
+        try
+        {
+            if (!CACHE.isDirectory() && !CACHE.mkdirs())
+            {
+                throw new IOException("Unable to create directory: " + CACHE.getPath());
+            }
+            final OutputStream file = new BufferedOutputStream(new FileOutputStream(temp));
+            output = new DataOutputStream(new DeflaterOutputStream(file));
+            final ImageBuffer first = rasters.get(0).getSurface();
+            final int width = first.getWidth();
+            final int height = first.getHeight();
+            final int[] pixels = new int[width * height];
+            output.writeInt(width);
+            output.writeInt(height);
+            for (final SpriteTiled raster : rasters)
+            {
+                raster.getSurface().getRgb(0, 0, width, height, pixels, 0, width);
+                for (final int pixel : pixels)
+                {
+                    output.writeInt(pixel);
+                }
+            }
+            output.close();
+            output = null;
+            // Renamed once complete, so an interrupted write is never read
+            if (!temp.renameTo(cache))
+            {
+                throw new IOException("Unable to rename: " + temp.getPath());
+            }
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception, "Unable to cache raster sheets: ", cache.getPath());
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+    }
+
+    /**
+     * Get the raster index of a tile vertical position. Rasters go forth and back along the map height.
+     * 
+     * @param ty The vertical tile position.
+     * @return The raster index.
+     */
+    public static int getRasterIndex(int ty)
+    {
+        final int period = (RASTERS - 1) * 2;
+        final int value = ty % period;
+        if (value < RASTERS)
+        {
+            return value;
+        }
+        return period - value;
+    }
+
+    /** Raster sheets by sheet, by raster index. */
+    private final Map<Integer, List<SpriteTiled>> rasters = new HashMap<Integer, List<SpriteTiled>>();
+    /** Tile height. */
+    private final int tileHeight;
+    /** Render commands, <code>null</code> to render tiles directly. */
+    private RenderCommands commands;
+
+    /**
+     * Create raster sheets.
+     * 
+     * @param tileHeight The tile height.
+     */
+    private RasterSheets(int tileHeight)
+    {
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Get the raster sheet.
+     * 
+     * @param sheet The sheet number.
+     * @param index The raster index.
+     * @return The raster sheet.
+     */
+    public SpriteTiled getRasterSheet(Integer sheet, int index)
+    {
+        return rasters.get(sheet).get(index);
+    }
+
+    /**
+     * Append tiles to render commands instead of rendering them directly.
+     * 
+     * @param commands The render commands, <code>null</code> to render tiles directly.
+     */
+    public void setCommands(RenderCommands commands)
+    {
+        this.commands = commands;
+    }
+
+    @Override
+    public void renderTile(Graphic g, MapTile map, Tile tile, int x, int y)
+    {
+        final SpriteTiled sheet = getRasterSheet(tile.getSheet(), getRasterIndex((int) tile.getY() / tileHeight));
+        if (commands == null)
+        {
+            sheet.setLocation(x, y);
+            sheet.setTile(tile.getNumber());
+            sheet.render(g);
+        }
+        else
+        {
+            final int width = sheet.getTileWidth();
+            final int height = sheet.getTileHeight();
+            final int columns = sheet.getTilesHorizontal();
+            final int number = tile.getNumber();
+            commands.add(RenderLayer.MAP,
+                         sheet.getSurface(),
+                         x,
+                         y,
+                         number % columns * width,
+                         number / columns * height,
+                         width,
+                         height);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.viewer.MapTileRenderer;
+import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Raster;
+import com.b3dgs.lionheart.IndexedImage;
+import com.b3dgs.lionheart.Palette;
+import com.b3dgs.lionheart.RenderCommands;
+import com.b3dgs.lionheart.RenderLayer;
+
+/**
+ * Lazy map raster, generating the raster image of a tile at a raster index the first time it is rendered.
+ * <p>
+ * Generated images are kept in a bounded least recently used cache, so raster memory depends on the visible tiles
+ * instead of all sheets tiles for all raster indexes, as {@link RasterSheets} does.
+ * </p>
+ * <p>
+ * Sheets with few enough colors are indexed once, so a tile raster image is a palette lookup of the tile indexes
+ * with the raster line palettes, instead of an engine raster pass.
+ * </p>
+ */
+public final class RasterTiles implements MapTileRenderer
+{
+    /** Default cache capacity, in tile images. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Cached raster tiles, in access order. */
+    private final Map<Long, ImageBuffer> cache;
+    /** Indexed sheets, <code>null</code> value if sheet cannot be indexed. */
+    private final Map<Integer, IndexedImage> indexed = new HashMap<Integer, IndexedImage>();
+    /** Raster line palettes per sheet and raster index. */
+    private final Map<Integer, Palette[]> palettes = new HashMap<Integer, Palette[]>();
+    /** Raster definition. */
+    private final Raster raster;
+    /** Source tile pixels buffer. */
+    private final int[] pixels;
+    /** Tile width. */
+    private final int tileWidth;
+    /** Tile height. */
+    private final int tileHeight;
+    /** Cache hits. */
+    private long hits;
+    /** Cache misses. */
+    private long misses;
+    /** Cache evictions. */
+    private long evictions;
+    /** Render commands, <code>null</code> to render tiles directly. */
+    private RenderCommands commands;
+
+    /**
+     * Create lazy raster.
+     * 
+     * @param map The map reference, with sheets loaded.
+     * @param rasterFile The raster definition.
+     * @param capacity The maximum number of cached tile images (strictly positive).
+     * @throws LionEngineException If invalid capacity or error on reading raster.
+     */
+    public RasterTiles(MapTile map, Media rasterFile, final int capacity)
+    {
+        Check.superiorStrict(capacity, 0);
+
+        raster = Raster.load(rasterFile);
+        tileWidth = map.getTileWidth();
+        tileHeight = map.getTileHeight();
+        pixels = new int[tileWidth * tileHeight];
+        cache = new LinkedHashMap<Long, ImageBuffer>(capacity, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ImageBuffer> eldest)
+            {
+                if (size() > capacity)
+                {
+                    eldest.getValue().dispose();
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Append tiles to render commands instead of rendering them directly. Capacity must exceed the visible tiles, so
+     * no image appended in a frame is evicted before flush.
+     * 
+     * @param commands The render commands, <code>null</code> to render tiles directly.
+     */
+    public void setCommands(RenderCommands commands)
+    {
+        this.commands = commands;
+    }
+
+    /**
+     * Clear all cached tile images.
+     */
+    public void clear()
+    {
+        for (final ImageBuffer image : cache.values())
+        {
+            image.dispose();
+        }
+        cache.clear();
+    }
+
+    /**
+     * Get the number of cached tile images.
+     * 
+     * @return The cached tile images.
+     */
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Get the number of rendered tiles which image was cached.
+     * 
+     * @return The cache hits.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Get the number of rendered tiles which image had to be generated.
+     * 
+     * @return The cache misses.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Get the number of tile images removed from cache to respect its capacity.
+     * 
+     * @return The cache evictions.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Get the memory used by indexed sheets and their raster palettes.
+     * 
+     * @return The memory in bytes.
+     */
+    public long getIndexedBytes()
+    {
+        long bytes = 0L;
+        for (final IndexedImage image : indexed.values())
+        {
+            if (image != null)
+            {
+                bytes += image.getBytes();
+            }
+        }
+        for (final Palette[] lines : palettes.values())
+        {
+            bytes += Palette.getBytes(lines);
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the indexed sheet, indexing it on first call.
+     * 
+     * @param map The map reference.
+     * @param sheet The sheet number.
+     * @return The indexed sheet, <code>null</code> if sheet has too many colors.
+     */
+    private IndexedImage getIndexed(MapTile map, Integer sheet)
+    {
+        if (!indexed.containsKey(sheet))
+        {
+            IndexedImage image = null;
+            try
+            {
+                image = IndexedImage.create(map.getSheet(sheet).getSurface());
+            }
+            catch (final LionEngineException exception)
+            {
+                Verbose.warning(RasterTiles.class, "getIndexed", "Sheet ", String.valueOf(sheet), " not indexed");
+            }
+            indexed.put(sheet, image);
+        }
+        return indexed.get(sheet);
+    }
+
+    /**
+     * Get the raster line palettes of an indexed sheet, creating them on first call.
+     * 
+     * @param image The indexed sheet.
+     * @param sheet The sheet number.
+     * @param index The raster index.
+     * @return The raster line palettes.
+     */
+    private Palette[] getPalettes(IndexedImage image, Integer sheet, int index)
+    {
+        final Integer key = Integer.valueOf(sheet.intValue() << Byte.SIZE | index);
+        Palette[] lines = palettes.get(key);
+        if (lines == null)
+        {
+            lines = Palette.createRaster(image.getPalette(), raster, index, RasterSheets.RASTERS, tileHeight);
+            palettes.put(key, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Generate the raster image of a tile.
+     * 
+     * @param map The map reference.
+     * @param tile The tile reference.
+     * @param index The raster index.
+     * @return The tile raster image.
+     */
+    private ImageBuffer generate(MapTile map, Tile tile, int index)
+    {
+        final ImageBuffer surface = map.getSheet(tile.getSheet()).getSurface();
+        final int horizontal = surface.getWidth() / tileWidth;
+        final int number = tile.getNumber();
+        final int x = number % horizontal * tileWidth;
+        final int y = number / horizontal * tileHeight;
+
+        final IndexedImage sheet = getIndexed(map, tile.getSheet());
+        final ImageBuffer image;
+        if (sheet != null)
+        {
+            final Palette[] lines = getPalettes(sheet, tile.getSheet(), index);
+            sheet.getRgb(x, y, tileWidth, tileHeight, lines, pixels, 0, tileWidth);
+            image = Graphics.createImageBuffer(tileWidth, tileHeight);
+            image.setRgb(0, 0, tileWidth, tileHeight, pixels, 0, tileWidth);
+        }
+        else
+        {
+            surface.getRgb(x, y, tileWidth, tileHeight, pixels, 0, tileWidth);
+            final ImageBuffer source = Graphics.createImageBuffer(tileWidth, tileHeight);
+            source.setRgb(0, 0, tileWidth, tileHeight, pixels, 0, tileWidth);
+            image = RasterSheets.generate(source, raster, index, tileHeight);
+            source.dispose();
+        }
+        image.prepare();
+        return image;
+    }
+
+    @Override
+    public void renderTile(Graphic g, MapTile map, Tile tile, int x, int y)
+    {
+        final int index = RasterSheets.getRasterIndex((int) tile.getY() / tileHeight);
+        final Long key = Long.valueOf((long) TileKey.of(tile) << Byte.SIZE | index);
+        ImageBuffer image = cache.get(key);
+        if (image == null)
+        {
+            misses++;
+            image = generate(map, tile, index);
+            cache.put(key, image);
+        }
+        else
+        {
+            hits++;
+        }
+        if (commands == null)
+        {
+            g.drawImage(image, x, y);
+        }
+        else
+        {
+            commands.add(RenderLayer.MAP, image, x, y, 0, 0, tileWidth, tileHeight);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.core.Graphics;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.SpriteTiled;
+import com.b3dgs.lionengine.io.FileReading;
+import com.b3dgs.lionengine.io.FileWriting;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Tile dictionary, associating a tile pixels hash to its sheet and number.
+ * <p>
+ * Built once per sheets set and persisted next to the sheets configuration as {@link #FILE}, so converting a rip
+ * only costs one hash, one lookup and one tile comparison per block, instead of comparing each block against all the
+ * sheets tiles. Sheets tiles are only all compared on a hash collision. The persisted dictionary is built again if the
+ * sheets configuration or images content changed.
+ * </p>
+ */
+public final class TileDictionary
+{
+    /** Sheets configuration file name. */
+    public static final String SHEETS = "sheets.xml";
+    /** Dictionary file name. */
+    public static final String FILE = "sheets.dic";
+    /** Missing tile value. */
+    public static final int MISSING = TileKey.MISSING;
+    /** Dictionary format version. */
+    private static final int FORMAT = 2;
+    /** Hash seed (FNV-1a offset basis). */
+    private static final long HASH_SEED = 0xCBF29CE484222325L;
+    /** Hash prime (FNV-1a prime). */
+    private static final long HASH_PRIME = 0x100000001B3L;
+    /** Rip blocks ignored color, skipped as the engine rip import does. */
+    private static final int IGNORED_COLOR = 0xFF008080;
+    /** Loaded dictionaries, by sheets configuration path. */
+    private static final Map<String, TileDictionary> CACHE = new HashMap<String, TileDictionary>();
+
+    /**
+     * Get the dictionary of the sheets set. Loaded from its file if exists, built and saved else. Dictionaries are
+     * kept once loaded, and can be requested concurrently.
+     * 
+     * @param sheets The sheets configuration.
+     * @return The tile dictionary.
+     * @throws IOException If error on reading or writing dictionary.
+     */
+    public static TileDictionary get(Media sheets) throws IOException
+    {
+        synchronized (CACHE)
+        {
+            TileDictionary dictionary = CACHE.get(sheets.getPath());
+            if (dictionary == null)
+            {
+                final Media file = getFile(sheets);
+                final String hash = ContentHash.ofSheets(sheets);
+                if (file.exists())
+                {
+                    dictionary = load(file);
+                }
+                if (dictionary == null || !hash.equals(dictionary.sheetsHash))
+                {
+                    final MapTile map = new Services().create(MapTileGame.class);
+                    map.loadSheets(sheets);
+                    dictionary = create(map, hash);
+                    dictionary.save(file);
+                }
+                CACHE.put(sheets.getPath(), dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    /**
+     * Get the dictionary file associated to the sheets configuration.
+     * 
+     * @param sheets The sheets configuration.
+     * @return The dictionary file.
+     */
+    public static Media getFile(Media sheets)
+    {
+        return Medias.create(sheets.getParentPath(), FILE);
+    }
+
+    /**
+     * Create the dictionary by scanning all sheets tiles of the map.
+     * 
+     * @param map The map reference, with sheets loaded.
+     * @param sheetsHash The sheets set content hash.
+     * @return The created dictionary.
+     */
+    public static TileDictionary create(MapTile map, String sheetsHash)
+    {
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        final TileDictionary dictionary = new TileDictionary(tw, th, sheetsHash);
+        final int[] pixels = new int[tw * th];
+        int collisions = 0;
+
+        for (int s = 0; s < map.getSheetsNumber(); s++)
+        {
+            final Integer sheet = Integer.valueOf(s);
+            final SpriteTiled tiles = map.getSheet(sheet);
+            final ImageBuffer surface = tiles.getSurface();
+            final int horizontal = surface.getWidth() / tw;
+            final int vertical = surface.getHeight() / th;
+            for (int ty = 0; ty < vertical; ty++)
+            {
+                for (int tx = 0; tx < horizontal; tx++)
+                {
+                    surface.getRgb(tx * tw, ty * th, tw, th, pixels, 0, tw);
+                    final Long hash = Long.valueOf(hash(pixels, 0, tw, tw, th));
+                    // Keep the first tile found, as the rip import does
+                    if (dictionary.tiles.containsKey(hash))
+                    {
+                        collisions++;
+                    }
+                    else
+                    {
+                        final int number = tx + ty * horizontal;
+                        dictionary.tiles.put(hash, Integer.valueOf(TileKey.of(s, number)));
+                    }
+                }
+            }
+        }
+        if (collisions > 0)
+        {
+            Verbose.warning(TileDictionary.class, "create", String.valueOf(collisions), " duplicated tiles ignored");
+        }
+        return dictionary;
+    }
+
+    /**
+     * Load dictionary from file.
+     * 
+     * @param file The dictionary file.
+     * @return The loaded dictionary, <code>null</code> if older format.
+     * @throws IOException If error on reading.
+     */
+    public static TileDictionary load(Media file) throws IOException
+    {
+        FileReading reading = null;
+        try
+        {
+            reading = new FileReading(file);
+            final int format = reading.readInteger();
+            if (format != FORMAT)
+            {
+                return null;
+            }
+            final int tw = reading.readInteger();
+            final int th = reading.readInteger();
+            final TileDictionary dictionary = new TileDictionary(tw, th, reading.readString());
+            final int count = reading.readInteger();
+            for (int i = 0; i < count; i++)
+            {
+                final long hash = reading.readLong();
+                dictionary.tiles.put(Long.valueOf(hash), Integer.valueOf(reading.readInteger()));
+            }
+            return dictionary;
+        }
+        finally
+        {
+            UtilStream.safeClose(reading);
+        }
+    }
+
+    /**
+     * Compute the hash of a block of pixels.
+     * 
+     * @param pixels The pixels array.
+     * @param offset The first pixel offset.
+     * @param scan The pixels array line width.
+     * @param width The block width.
+     * @param height The block height.
+     * @return The block hash.
+     */
+    public static long hash(int[] pixels, int offset, int scan, int width, int height)
+    {
+        long hash = HASH_SEED;
+        for (int y = 0; y < height; y++)
+        {
+            final int line = offset + y * scan;
+            for (int x = 0; x < width; x++)
+            {
+                hash ^= pixels[line + x];
+                hash *= HASH_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /** Tiles key by hash. */
+    private final Map<Long, Integer> tiles = new HashMap<Long, Integer>();
+    /** Tile width. */
+    private final int tileWidth;
+    /** Tile height. */
+    private final int tileHeight;
+    /** Sheets set content hash. */
+    private final String sheetsHash;
+
+    /**
+     * Create dictionary.
+     * 
+     * @param tileWidth The tile width.
+     * @param tileHeight The tile height.
+     * @param sheetsHash The sheets set content hash.
+     */
+    private TileDictionary(int tileWidth, int tileHeight, String sheetsHash)
+    {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.sheetsHash = sheetsHash;
+    }
+
+    /**
+     * Create the map from the rip, by looking up each rip block in the dictionary. Blocks without matching tile, and
+     * blocks of the ignored color, are left empty.
+     * 
+     * @param map The map reference.
+     * @param rip The level rip.
+     * @param sheets The sheets configuration used by the dictionary.
+     * @return The number of blocks without matching tile.
+     * @throws LionEngineException If rip size is not a multiple of the tile size.
+     */
+    public int convert(MapTile map, Media rip, Media sheets)
+    {
+        final ImageBuffer image = Graphics.getImageBuffer(rip);
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        if (width % tileWidth != 0 || height % tileHeight != 0)
+        {
+            throw new LionEngineException(rip, "Rip size is not a multiple of the tile size !");
+        }
+        final int[] pixels = new int[width * height];
+        image.getRgb(0, 0, width, height, pixels, 0, width);
+        image.dispose();
+
+        final int widthInTile = width / tileWidth;
+        final int heightInTile = height / tileHeight;
+        map.create(tileWidth, tileHeight, widthInTile, heightInTile);
+        map.loadSheets(sheets);
+
+        final int[][] sheetsPixels = new int[map.getSheetsNumber()][];
+        final int[] sheetsWidth = new int[sheetsPixels.length];
+        for (int s = 0; s < sheetsPixels.length; s++)
+        {
+            final ImageBuffer surface = map.getSheet(Integer.valueOf(s)).getSurface();
+            sheetsWidth[s] = surface.getWidth();
+            sheetsPixels[s] = new int[surface.getWidth() * surface.getHeight()];
+            surface.getRgb(0, 0, surface.getWidth(), surface.getHeight(), sheetsPixels[s], 0, surface.getWidth());
+        }
+
+        int missing = 0;
+        for (int by = 0; by < heightInTile; by++)
+        {
+            // Rip is top down, map is bottom up
+            final int ty = heightInTile - 1 - by;
+            for (int tx = 0; tx < widthInTile; tx++)
+            {
+                final int offset = by * tileHeight * width + tx * tileWidth;
+                // Engine checks the ignored color inside the block, out of any border
+                if (pixels[offset + width + 1] != IGNORED_COLOR)
+                {
+                    final int key = lookup(sheetsPixels, sheetsWidth, pixels, offset, width);
+                    if (key == MISSING)
+                    {
+                        missing++;
+                    }
+                    TileKey.set(map, key, tx, ty);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Get the tile matching the block from its hash, checking the tile pixels, or from all sheets tiles on collision.
+     * 
+     * @param sheetsPixels The sheets pixels, by sheet.
+     * @param sheetsWidth The sheets width, by sheet.
+     * @param pixels The block pixels array.
+     * @param offset The block first pixel offset.
+     * @param scan The block pixels array line width.
+     * @return The tile key, {@link #MISSING} if none.
+     */
+    private int lookup(int[][] sheetsPixels, int[] sheetsWidth, int[] pixels, int offset, int scan)
+    {
+        final int key = get(hash(pixels, offset, scan, tileWidth, tileHeight));
+        if (key == MISSING)
+        {
+            return MISSING;
+        }
+        final int sheet = TileKey.getSheet(key);
+        if (matches(sheetsPixels[sheet], sheetsWidth[sheet], TileKey.getNumber(key), pixels, offset, scan))
+        {
+            return key;
+        }
+        return find(sheetsPixels, sheetsWidth, pixels, offset, scan);
+    }
+
+    /**
+     * Find the tile matching the block by comparing it against all sheets tiles.
+     * 
+     * @param sheetsPixels The sheets pixels, by sheet.
+     * @param sheetsWidth The sheets width, by sheet.
+     * @param pixels The block pixels array.
+     * @param offset The block first pixel offset.
+     * @param scan The block pixels array line width.
+     * @return The tile key, {@link #MISSING} if none.
+     */
+    private int find(int[][] sheetsPixels, int[] sheetsWidth, int[] pixels, int offset, int scan)
+    {
+        for (int s = 0; s < sheetsPixels.length; s++)
+        {
+            final int count = sheetsWidth[s] / tileWidth * (sheetsPixels[s].length / sheetsWidth[s] / tileHeight);
+            for (int number = 0; number < count; number++)
+            {
+                if (matches(sheetsPixels[s], sheetsWidth[s], number, pixels, offset, scan))
+                {
+                    return TileKey.of(s, number);
+                }
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Check if the sheet tile has the block pixels.
+     * 
+     * @param sheet The sheet pixels.
+     * @param sheetWidth The sheet width.
+     * @param number The tile number.
+     * @param pixels The block pixels array.
+     * @param offset The block first pixel offset.
+     * @param scan The block pixels array line width.
+     * @return <code>true</code> if same pixels, <code>false</code> else.
+     */
+    private boolean matches(int[] sheet, int sheetWidth, int number, int[] pixels, int offset, int scan)
+    {
+        final int columns = sheetWidth / tileWidth;
+        final int start = number / columns * tileHeight * sheetWidth + number % columns * tileWidth;
+        for (int y = 0; y < tileHeight; y++)
+        {
+            final int tileLine = start + y * sheetWidth;
+            final int blockLine = offset + y * scan;
+            for (int x = 0; x < tileWidth; x++)
+            {
+                if (sheet[tileLine + x] != pixels[blockLine + x])
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the tile key associated to the hash.
+     * 
+     * @param hash The tile pixels hash.
+     * @return The tile key (sheet in high bits, number in low bits), {@link #MISSING} if none.
+     */
+    public int get(long hash)
+    {
+        final Integer key = tiles.get(Long.valueOf(hash));
+        if (key == null)
+        {
+            return MISSING;
+        }
+        return key.intValue();
+    }
+
+    /**
+     * Save dictionary to file.
+     * 
+     * @param file The dictionary file.
+     * @throws IOException If error on writing.
+     */
+    public void save(Media file) throws IOException
+    {
+        FileWriting writing = null;
+        try
+        {
+            writing = new FileWriting(file);
+            writing.writeInteger(FORMAT);
+            writing.writeInteger(tileWidth);
+            writing.writeInteger(tileHeight);
+            writing.writeString(sheetsHash);
+            writing.writeInteger(tiles.size());
+            for (final Map.Entry<Long, Integer> entry : tiles.entrySet())
+            {
+                writing.writeLong(entry.getKey().longValue());
+                writing.writeInteger(entry.getValue().intValue());
+            }
+        }
+        finally
+        {
+            UtilStream.safeClose(writing);
+        }
+    }
+
+    /**
+     * Get the tile width.
+     * 
+     * @return The tile width.
+     */
+    public int getTileWidth()
+    {
+        return tileWidth;
+    }
+
+    /**
+     * Get the tile height.
+     * 
+     * @return The tile height.
+     */
+    public int getTileHeight()
+    {
+        return tileHeight;
+    }
+
+    /**
+     * Get the number of tiles referenced.
+     * 
+     * @return The number of tiles referenced.
+     */
+    public int getSize()
+    {
+        return tiles.size();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Chunk tile keys encodings. Each encoding is persisted by its {@link #getId()}, which must never change.
+ */
+public enum TileEncoding
+{
+    /** Raw keys, fixed four bytes per tile. */
+    RAW(0)
+    {
+        @Override
+        byte[] encode(int[] keys)
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate(keys.length * 4);
+            for (final int key : keys)
+            {
+                buffer.putInt(key);
+            }
+            return buffer.array();
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int offset, int[] keys)
+        {
+            for (int i = 0; i < keys.length; i++)
+            {
+                keys[i] = buffer.getInt(offset + i * 4);
+            }
+        }
+    },
+    /** Runs of identical keys, stored as variable length run and key. */
+    RLE(1)
+    {
+        @Override
+        byte[] encode(int[] keys)
+        {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int i = 0;
+            while (i < keys.length)
+            {
+                final int run = getRun(keys, i);
+                writeVarint(output, run);
+                writeVarint(output, keys[i] + 1);
+                i += run;
+            }
+            return output.toByteArray();
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int offset, int[] keys)
+        {
+            final int[] cursor =
+            {
+                offset
+            };
+            int i = 0;
+            while (i < keys.length)
+            {
+                final int run = readVarint(buffer, cursor);
+                final int key = readVarint(buffer, cursor) - 1;
+                for (int j = 0; j < run; j++)
+                {
+                    keys[i + j] = key;
+                }
+                i += run;
+            }
+        }
+    },
+    /** Runs of identical deltas between consecutive keys, catching sequential tiles as well as identical ones. */
+    DELTA(2)
+    {
+        @Override
+        byte[] encode(int[] keys)
+        {
+            final int[] deltas = new int[keys.length];
+            int previous = 0;
+            for (int i = 0; i < keys.length; i++)
+            {
+                deltas[i] = keys[i] - previous;
+                previous = keys[i];
+            }
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int i = 0;
+            while (i < deltas.length)
+            {
+                final int run = getRun(deltas, i);
+                writeVarint(output, run);
+                writeVarint(output, deltas[i] << 1 ^ deltas[i] >> 31);
+                i += run;
+            }
+            return output.toByteArray();
+        }
+
+        @Override
+        void decode(ByteBuffer buffer, int offset, int[] keys)
+        {
+            final int[] cursor =
+            {
+                offset
+            };
+            int previous = 0;
+            int i = 0;
+            while (i < keys.length)
+            {
+                final int run = readVarint(buffer, cursor);
+                final int zigzag = readVarint(buffer, cursor);
+                final int delta = zigzag >>> 1 ^ -(zigzag & 1);
+                for (int j = 0; j < run; j++)
+                {
+                    previous += delta;
+                    keys[i + j] = previous;
+                }
+                i += run;
+            }
+        }
+    };
+
+    /** Varint payload mask. */
+    private static final int VARINT_MASK = 0x7F;
+    /** Varint continuation flag. */
+    private static final int VARINT_MORE = 0x80;
+    /** Varint payload bits. */
+    private static final int VARINT_SHIFT = 7;
+
+    /**
+     * Get the encoding from its persisted identifier.
+     * 
+     * @param id The encoding identifier.
+     * @return The encoding, <code>null</code> if unknown.
+     */
+    public static TileEncoding get(int id)
+    {
+        for (final TileEncoding encoding : values())
+        {
+            if (encoding.id == id)
+            {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the length of the run of identical values starting at index.
+     * 
+     * @param values The values.
+     * @param start The run start index.
+     * @return The run length.
+     */
+    static int getRun(int[] values, int start)
+    {
+        int end = start + 1;
+        while (end < values.length && values[end] == values[start])
+        {
+            end++;
+        }
+        return end - start;
+    }
+
+    /**
+     * Write an unsigned variable length integer.
+     * 
+     * @param output The output stream.
+     * @param value The value to write.
+     */
+    static void writeVarint(ByteArrayOutputStream output, int value)
+    {
+        int remaining = value;
+        while ((remaining & ~VARINT_MASK) != 0)
+        {
+            output.write(remaining & VARINT_MASK | VARINT_MORE);
+            remaining >>>= VARINT_SHIFT;
+        }
+        output.write(remaining);
+    }
+
+    /**
+     * Read an unsigned variable length integer.
+     * 
+     * @param buffer The buffer to read.
+     * @param cursor The read position, updated after read.
+     * @return The read value.
+     */
+    static int readVarint(ByteBuffer buffer, int[] cursor)
+    {
+        int value = 0;
+        int shift = 0;
+        int read;
+        do
+        {
+            read = buffer.get(cursor[0]++);
+            value |= (read & VARINT_MASK) << shift;
+            shift += VARINT_SHIFT;
+        }
+        while ((read & VARINT_MORE) != 0);
+        return value;
+    }
+
+    /** Persisted identifier. */
+    private final int id;
+
+    /**
+     * Create encoding.
+     * 
+     * @param id The persisted identifier.
+     */
+    TileEncoding(int id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * Get the persisted identifier.
+     * 
+     * @return The encoding identifier.
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Encode chunk tile keys.
+     * 
+     * @param keys The keys to encode.
+     * @return The encoded bytes.
+     */
+    abstract byte[] encode(int[] keys);
+
+    /**
+     * Decode chunk tile keys, using absolute reads only.
+     * 
+     * @param buffer The buffer to read.
+     * @param offset The encoded data offset.
+     * @param keys The decoded keys.
+     */
+    abstract void decode(ByteBuffer buffer, int offset, int[] keys);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionheart.level;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Tile key utility, packing a tile sheet and number into a single integer.
+ */
+final class TileKey
+{
+    /** Missing tile key. */
+    static final int MISSING = -1;
+    /** Sheet shift in tile key. */
+    private static final int SHEET_SHIFT = 16;
+    /** Number mask in tile key. */
+    private static final int NUMBER_MASK = 0xFFFF;
+
+    /**
+     * Get the key of a tile.
+     * 
+     * @param sheet The tile sheet.
+     * @param number The tile number.
+     * @return The tile key.
+     */
+    static int of(int sheet, int number)
+    {
+        return sheet << SHEET_SHIFT | number & NUMBER_MASK;
+    }
+
+    /**
+     * Get the key of a tile.
+     * 
+     * @param tile The tile reference (can be <code>null</code>).
+     * @return The tile key, {@link #MISSING} if no tile.
+     */
+    static int of(Tile tile)
+    {
+        if (tile == null)
+        {
+            return MISSING;
+        }
+        return of(tile.getSheet().intValue(), tile.getNumber());
+    }
+
+    /**
+     * Get the sheet of a tile key.
+     * 
+     * @param key The tile key (must not be {@link #MISSING}).
+     * @return The tile sheet.
+     */
+    static int getSheet(int key)
+    {
+        return key >>> SHEET_SHIFT;
+    }
+
+    /**
+     * Get the number of a tile key.
+     * 
+     * @param key The tile key (must not be {@link #MISSING}).
+     * @return The tile number.
+     */
+    static int getNumber(int key)
+    {
+        return key & NUMBER_MASK;
+    }
+
+    /**
+     * Create the tile from its key and set it to the map. Nothing is done for {@link #MISSING}.
+     * 
+     * @param map The map reference.
+     * @param key The tile key.
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     */
+    static void set(MapTile map, int key, int tx, int ty)
+    {
+        if (key != MISSING)
+        {
+            final Integer sheet = Integer.valueOf(key >>> SHEET_SHIFT);
+            final int number = key & NUMBER_MASK;
+            map.setTile(map.createTile(sheet, number, tx * map.getTileWidth(), ty * map.getTileHeight()));
+        }
+    }
+
+    /**
+     * Remove the tile at location from the map, if any.
+     * 
+     * @param map The map reference.
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     */
+    static void clear(MapTile map, int tx, int ty)
+    {
+        if (map.getTile(tx, ty) != null)
+        {
+            map.removeTile(tx, ty);
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private TileKey()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
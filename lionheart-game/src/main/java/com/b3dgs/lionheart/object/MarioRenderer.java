@@ -28,6 +28,8 @@ import com.b3dgs.lionengine.game.feature.collidable.Collidable;
 import com.b3dgs.lionengine.graphic.ColorRgba;
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.SpriteAnimated;
+import com.b3dgs.lionheart.RenderCommands;
+import com.b3dgs.lionheart.RenderLayer;
 
 /**
  * Mario rendering implementation.
@@ -36,6 +38,16 @@ class MarioRenderer extends FeatureModel implements Displayable
 {
     private final SpriteAnimated surface;
     private final Viewer viewer;
+    private final RenderCommands commands;
+    private final Displayable collision = new Displayable()
+    {
+        @Override
+        public void render(Graphic g)
+        {
+            g.setColor(ColorRgba.GREEN);
+            collidable.render(g);
+        }
+    };
 
     @FeatureGet private Collidable collidable;
     @FeatureGet private Transformable transformable;
@@ -51,6 +63,7 @@ class MarioRenderer extends FeatureModel implements Displayable
         super();
 
         viewer = services.get(Viewer.class);
+        commands = services.get(RenderCommands.class);
         surface = model.getSurface();
     }
 
@@ -66,9 +79,7 @@ class MarioRenderer extends FeatureModel implements Displayable
     public void render(Graphic g)
     {
         surface.setLocation(viewer, transformable);
-        surface.render(g);
-
-        g.setColor(ColorRgba.GREEN);
-        collidable.render(g);
+        commands.add(RenderLayer.ENTITIES, surface);
+        commands.addOverlay(collision);
     }
 }